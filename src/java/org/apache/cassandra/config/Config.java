@@ -97,6 +97,7 @@ public class Config
     public Integer concurrent_reads = 32;
     public Integer concurrent_writes = 32;
     public Integer concurrent_counter_writes = 32;
+    public Integer counter_write_accumulation_window_in_ms = 0;
 
     @Deprecated
     public Integer concurrent_replicates = null;
@@ -150,6 +151,10 @@ public class Config
     public volatile Integer batch_size_fail_threshold_in_kb = 50;
     public Integer concurrent_compactors;
     public volatile Integer compaction_throughput_mb_per_sec = 16;
+    public boolean compaction_throughput_adaptive = false;
+    public Integer compaction_throughput_min_mb_per_sec = 2;
+    public Integer compaction_read_latency_target_ms = 20;
+    public Integer concurrent_validation_segments = 1;
 
     public Integer max_streaming_retries = 3;
 
@@ -234,6 +239,12 @@ public class Config
     public volatile Long index_summary_capacity_in_mb;
     public volatile int index_summary_resize_interval_in_minutes = 60;
 
+    public boolean blocked_bloom_filters = false;
+
+    public boolean mmap_filters_and_summaries = false;
+
+    public String sstable_format = "big";
+
     private static final CsvPreference STANDARD_SURROUNDING_SPACES_NEED_QUOTES = new CsvPreference.Builder(CsvPreference.STANDARD_PREFERENCE)
                                                                                                   .surroundingSpacesNeedQuotes(true).build();
 
@@ -387,6 +387,9 @@ public class DatabaseDescriptor
         if (conf.concurrent_counter_writes != null && conf.concurrent_counter_writes < 2)
             throw new ConfigurationException("concurrent_counter_writes must be at least 2", false);
 
+        if (conf.counter_write_accumulation_window_in_ms == null || conf.counter_write_accumulation_window_in_ms < 0)
+            throw new ConfigurationException("counter_write_accumulation_window_in_ms must be non-negative", false);
+
         if (conf.concurrent_replicates != null)
             logger.warn("concurrent_replicates has been deprecated and should be removed from cassandra.yaml");
 
@@ -541,6 +544,15 @@ public class DatabaseDescriptor
         if (conf.concurrent_compactors <= 0)
             throw new ConfigurationException("concurrent_compactors should be strictly greater than 0", false);
 
+        if (conf.concurrent_validation_segments <= 0)
+            throw new ConfigurationException("concurrent_validation_segments should be strictly greater than 0", false);
+
+        if (conf.compaction_throughput_min_mb_per_sec < 0)
+            throw new ConfigurationException("compaction_throughput_min_mb_per_sec must be non-negative", false);
+
+        if (conf.compaction_read_latency_target_ms <= 0)
+            throw new ConfigurationException("compaction_read_latency_target_ms should be strictly greater than 0", false);
+
         if (conf.initial_token != null)
             for (String token : tokensFromString(conf.initial_token))
                 partitioner.getTokenFactory().validate(token);
@@ -591,6 +603,16 @@ public class DatabaseDescriptor
             throw new ConfigurationException("index_summary_capacity_in_mb option was set incorrectly to '"
                     + conf.index_summary_capacity_in_mb + "', it should be a non-negative integer.", false);
 
+        try
+        {
+            sstable_format = SSTableFormat.Type.validate(conf.sstable_format);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ConfigurationException("sstable_format option was set incorrectly to '"
+                    + conf.sstable_format + "', supported values are big and trie.", false);
+        }
+
         if(conf.encryption_options != null)
         {
             logger.warn("Please rename encryption_options as server_encryption_options in the yaml");
@@ -1022,6 +1044,11 @@ public class DatabaseDescriptor
         return conf.concurrent_counter_writes;
     }
 
+    public static int getCounterWriteAccumulationWindow()
+    {
+        return conf.counter_write_accumulation_window_in_ms;
+    }
+
     public static int getFlushWriters()
     {
             return conf.memtable_flush_writers;
@@ -1032,6 +1059,11 @@ public class DatabaseDescriptor
         return conf.concurrent_compactors;
     }
 
+    public static int getConcurrentValidationSegments()
+    {
+        return conf.concurrent_validation_segments;
+    }
+
     public static int getCompactionThroughputMbPerSec()
     {
         return conf.compaction_throughput_mb_per_sec;
@@ -1042,6 +1074,21 @@ public class DatabaseDescriptor
         conf.compaction_throughput_mb_per_sec = value;
     }
 
+    public static boolean isCompactionThroughputAdaptive()
+    {
+        return conf.compaction_throughput_adaptive;
+    }
+
+    public static int getCompactionThroughputMinMbPerSec()
+    {
+        return conf.compaction_throughput_min_mb_per_sec;
+    }
+
+    public static int getCompactionReadLatencyTargetMs()
+    {
+        return conf.compaction_read_latency_target_ms;
+    }
+
     public static boolean getDisableSTCSInL0()
     {
         return Boolean.getBoolean("cassandra.disable_stcs_in_l0");
@@ -1636,6 +1683,16 @@ public class DatabaseDescriptor
         return conf.index_summary_resize_interval_in_minutes;
     }
 
+    public static boolean useBlockedBloomFilters()
+    {
+        return conf.blocked_bloom_filters;
+    }
+
+    public static boolean mmapFiltersAndSummaries()
+    {
+        return conf.mmap_filters_and_summaries && hasLargeAddressSpace();
+    }
+
     public static boolean hasLargeAddressSpace()
     {
         // currently we just check if it's a 64bit arch, but any we only really care if the address space is large
@@ -29,6 +29,7 @@ import org.apache.cassandra.db.marshal.FloatType;
 import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.marshal.IntegerType;
 import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.utils.ByteBufferUtil;
 
 /**
  * Factory methods for aggregate functions.
@@ -251,11 +252,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.intValue();
+                            sum += ByteBufferUtil.toInt(value);
                         }
                     };
                 }
@@ -292,12 +292,11 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
                             count++;
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.intValue();
+                            sum += ByteBufferUtil.toInt(value);
                         }
                     };
                 }
@@ -329,11 +328,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.longValue();
+                            sum += ByteBufferUtil.toLong(value);
                         }
                     };
                 }
@@ -370,12 +368,11 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
                             count++;
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.longValue();
+                            sum += ByteBufferUtil.toLong(value);
                         }
                     };
                 }
@@ -407,11 +404,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.floatValue();
+                            sum += ByteBufferUtil.toFloat(value);
                         }
                     };
                 }
@@ -448,12 +444,11 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
                             count++;
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.floatValue();
+                            sum += ByteBufferUtil.toFloat(value);
                         }
                     };
                 }
@@ -485,11 +480,10 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.doubleValue();
+                            sum += ByteBufferUtil.toDouble(value);
                         }
                     };
                 }
@@ -526,12 +520,11 @@ public abstract class AggregateFcts
                         {
                             ByteBuffer value = values.get(0);
 
-                            if (value == null)
+                            if (value == null || !value.hasRemaining())
                                 return;
 
                             count++;
-                            Number number = ((Number) argTypes().get(0).compose(value));
-                            sum += number.doubleValue();
+                            sum += ByteBufferUtil.toDouble(value);
                         }
                     };
                 }
@@ -19,6 +19,7 @@ package org.apache.cassandra.cql3.statements;
 
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Future;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
@@ -52,7 +53,6 @@ import org.apache.cassandra.service.pager.QueryPagers;
 import org.apache.cassandra.thrift.ThriftValidation;
 import org.apache.cassandra.transport.messages.ResultMessage;
 import org.apache.cassandra.utils.ByteBufferUtil;
-import org.apache.cassandra.utils.FBUtilities;
 
 import static org.apache.cassandra.cql3.statements.RequestValidations.checkFalse;
 import static org.apache.cassandra.cql3.statements.RequestValidations.checkNotNull;
@@ -84,6 +84,12 @@ public class SelectStatement implements CQLStatement
      */
     private final Comparator<List<ByteBuffer>> orderingComparator;
 
+    /**
+     * The columns whose cells are queried for each selected CQL row when all of its primary key is restricted, resolved
+     * once at preparation rather than on every execution.
+     */
+    private final List<ColumnDefinition> queriedColumns;
+
     // Used by forSelection below
     private static final Parameters defaultParameters = new Parameters(Collections.<ColumnIdentifier.Raw, Boolean>emptyMap(), false, false, false);
 
@@ -104,6 +110,29 @@ public class SelectStatement implements CQLStatement
         this.orderingComparator = orderingComparator;
         this.parameters = parameters;
         this.limit = limit;
+        this.queriedColumns = queriedColumns(cfm, selection);
+    }
+
+    private static List<ColumnDefinition> queriedColumns(CFMetaData cfm, Selection selection)
+    {
+        if (cfm.comparator.isDense())
+            return Collections.emptyList();
+
+        // We need to query the selected column as well as the marker
+        // column (for the case where the row exists but has no columns outside the PK)
+        // Two exceptions are "static CF" (non-composite non-compact CF) and "super CF"
+        // that don't have marker and for which we must query all columns instead
+        if (cfm.comparator.isCompound() && !cfm.isSuper())
+        {
+            List<ColumnDefinition> columns = new ArrayList<>();
+            for (ColumnDefinition def : selection.getColumns())
+                if (def.isRegular() || def.isStatic())
+                    columns.add(def);
+            return columns;
+        }
+
+        // We now that we're not composite so we can ignore static columns
+        return new ArrayList<>(cfm.regularColumns());
     }
 
     public Iterable<Function> getFunctions()
@@ -229,16 +258,32 @@ public class SelectStatement implements CQLStatement
             throws RequestValidationException, RequestExecutionException
     {
         Selection.ResultSetBuilder result = selection.resultSetBuilder(now, parameters.isJson);
-        while (!pager.isExhausted())
+        List<Row> page = pager.fetchPage(pageSize);
+        while (true)
         {
-            for (org.apache.cassandra.db.Row row : pager.fetchPage(pageSize))
+            // The next page is read while this one is aggregated
+            Future<List<Row>> nextPage = pager.isExhausted() ? null : QueryPagers.fetchPageAsync(pager, pageSize);
+            try
             {
-                // Not columns match the query, skip
-                if (row.cf == null)
-                    continue;
+                for (org.apache.cassandra.db.Row row : page)
+                {
+                    // Not columns match the query, skip
+                    if (row.cf == null)
+                        continue;
 
-                processColumnFamily(row.key.getKey(), row.cf, options, now, result);
+                    processColumnFamily(row.key.getKey(), row.cf, options, now, result);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                if (nextPage != null)
+                    nextPage.cancel(false);
+                throw e;
             }
+
+            if (nextPage == null)
+                break;
+            page = QueryPagers.awaitPage(nextPage);
         }
         return new ResultMessage.Rows(result.build(options.getProtocolVersion()));
     }
@@ -492,42 +537,23 @@ public class SelectStatement implements CQLStatement
         assert !restrictions.isColumnRange();
         SortedSet<CellName> columns = new TreeSet<CellName>(cfm.comparator);
         for (Composite composite : restrictions.getClusteringColumnsAsComposites(options))
-            columns.addAll(addSelectedColumns(composite));
+            addSelectedColumns(composite, columns);
         return columns;
     }
 
-    private SortedSet<CellName> addSelectedColumns(Composite prefix)
+    private void addSelectedColumns(Composite prefix, SortedSet<CellName> columns)
     {
         if (cfm.comparator.isDense())
         {
-            return FBUtilities.singleton(cfm.comparator.create(prefix, null), cfm.comparator);
+            columns.add(cfm.comparator.create(prefix, null));
+            return;
         }
-        else
-        {
-            SortedSet<CellName> columns = new TreeSet<CellName>(cfm.comparator);
 
-            // We need to query the selected column as well as the marker
-            // column (for the case where the row exists but has no columns outside the PK)
-            // Two exceptions are "static CF" (non-composite non-compact CF) and "super CF"
-            // that don't have marker and for which we must query all columns instead
-            if (cfm.comparator.isCompound() && !cfm.isSuper())
-            {
-                // marker
-                columns.add(cfm.comparator.rowMarker(prefix));
+        if (cfm.comparator.isCompound() && !cfm.isSuper())
+            columns.add(cfm.comparator.rowMarker(prefix));
 
-                // selected columns
-                for (ColumnDefinition def : selection.getColumns())
-                    if (def.isRegular() || def.isStatic())
-                        columns.add(cfm.comparator.create(prefix, def));
-            }
-            else
-            {
-                // We now that we're not composite so we can ignore static columns
-                for (ColumnDefinition def : cfm.regularColumns())
-                    columns.add(cfm.comparator.create(prefix, def));
-            }
-            return columns;
-        }
+        for (ColumnDefinition def : queriedColumns)
+            columns.add(cfm.comparator.create(prefix, def));
     }
 
     public List<IndexExpression> getValidatedIndexExpressions(QueryOptions options) throws InvalidRequestException
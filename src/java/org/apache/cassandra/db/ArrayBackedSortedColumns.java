@@ -96,6 +96,17 @@ public class ArrayBackedSortedColumns extends ColumnFamily
         return copy;
     }
 
+    /**
+     * Replaces the cells that point into off-heap memtable memory by copies made with the given allocator, leaving
+     * the others as they are.
+     */
+    public void copyNativeCells(AbstractAllocator allocator)
+    {
+        for (int i = 0; i < size; i++)
+            if (cells[i] instanceof AbstractNativeCell)
+                cells[i] = cells[i].localCopy(metadata, allocator);
+    }
+
     public ColumnFamily.Factory getFactory()
     {
         return factory;
@@ -56,6 +56,11 @@ public class CollationController
         this.gcBefore = gcBefore;
     }
 
+    /**
+     * @param copyOnHeap whether memtable cells must be copied on heap to outlive the read. Off-heap native cells are
+     * only copied once merged into the result, so that the ones shadowed or filtered out never are; other cells
+     * are copied as they are read from the memtables.
+     */
     public ColumnFamily getTopLevelColumns(boolean copyOnHeap)
     {
         return filter.filter instanceof NamesQueryFilter
@@ -71,7 +76,7 @@ public class CollationController
      */
     private ColumnFamily collectTimeOrderedData(boolean copyOnHeap)
     {
-        final ColumnFamily container = ArrayBackedSortedColumns.factory.create(cfs.metadata, filter.filter.isReversed());
+        final ArrayBackedSortedColumns container = ArrayBackedSortedColumns.factory.create(cfs.metadata, filter.filter.isReversed());
         List<OnDiskAtomIterator> iterators = new ArrayList<>();
         boolean isEmpty = true;
         Tracing.trace("Acquiring sstable references");
@@ -92,7 +97,7 @@ public class CollationController
                     while (iter.hasNext())
                     {
                         Cell cell = iter.next();
-                        if (copyOnHeap)
+                        if (copyOnHeap && !(cell instanceof AbstractNativeCell))
                             cell = cell.localCopy(cfs.metadata, HeapAllocator.instance);
                         container.addColumn(cell);
                     }
@@ -142,9 +147,11 @@ public class CollationController
                 return null;
 
             // do a final collate.  toCollate is boilerplate required to provide a CloseableIterator
-            ColumnFamily returnCF = container.cloneMeShallow();
+            ArrayBackedSortedColumns returnCF = container.cloneMeShallow(ArrayBackedSortedColumns.factory, false);
             Tracing.trace("Collating all results");
             filter.collateOnDiskAtom(returnCF, container.iterator(), gcBefore);
+            if (copyOnHeap)
+                returnCF.copyNativeCells(HeapAllocator.instance);
 
             // "hoist up" the requested data into a more recent sstable
             if (sstablesIterated > cfs.getMinimumCompactionThreshold()
@@ -202,7 +209,7 @@ public class CollationController
         Tracing.trace("Acquiring sstable references");
         ColumnFamilyStore.ViewFragment view = cfs.select(cfs.viewFilter(filter.key));
         List<Iterator<? extends OnDiskAtom>> iterators = new ArrayList<>(Iterables.size(view.memtables) + view.sstables.size());
-        ColumnFamily returnCF = ArrayBackedSortedColumns.factory.create(cfs.metadata, filter.filter.isReversed());
+        ArrayBackedSortedColumns returnCF = ArrayBackedSortedColumns.factory.create(cfs.metadata, filter.filter.isReversed());
         DeletionInfo returnDeletionInfo = returnCF.deletionInfo();
         try
         {
@@ -220,7 +227,7 @@ public class CollationController
                         {
                             public Cell apply(Cell cell)
                             {
-                                return cell.localCopy(cf.metadata, HeapAllocator.instance);
+                                return cell instanceof AbstractNativeCell ? cell : cell.localCopy(cf.metadata, HeapAllocator.instance);
                             }
                         });
                     }
@@ -315,6 +322,8 @@ public class CollationController
 
             Tracing.trace("Merging data from memtables and {} sstables", sstablesIterated);
             filter.collateOnDiskAtom(returnCF, iterators, gcBefore);
+            if (copyOnHeap)
+                returnCF.copyNativeCells(HeapAllocator.instance);
 
             // Caller is responsible for final removeDeletedCF.  This is important for cacheRow to work correctly:
             return returnCF;
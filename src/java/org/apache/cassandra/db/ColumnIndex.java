@@ -26,6 +26,7 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.io.sstable.IndexHelper;
+import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.utils.ByteBufferUtil;
 
@@ -67,18 +68,31 @@ public class ColumnIndex
         private int atomCount;
         private final ByteBuffer key;
         private final DeletionInfo deletionInfo; // only used for serializing and calculating row header size
+        private final Collection<SSTableFlushObserver> observers;
 
         private final OnDiskAtom.Serializer atomSerializer;
 
         public Builder(ColumnFamily cf,
                        ByteBuffer key,
                        DataOutputPlus output)
+        {
+            this(cf, key, output, Collections.<SSTableFlushObserver>emptyList());
+        }
+
+        /**
+         * @param observers notified of each atom written
+         */
+        public Builder(ColumnFamily cf,
+                       ByteBuffer key,
+                       DataOutputPlus output,
+                       Collection<SSTableFlushObserver> observers)
         {
             assert cf != null;
             assert key != null;
             assert output != null;
 
             this.key = key;
+            this.observers = observers;
             deletionInfo = cf.deletionInfo();
             this.indexOffset = rowHeaderSize(key, deletionInfo);
             this.result = new ColumnIndex(new ArrayList<IndexHelper.IndexInfo>());
@@ -200,6 +214,8 @@ public class ColumnIndex
 
             maybeWriteRowHeader();
             atomSerializer.serializeForSSTable(column, output);
+            for (SSTableFlushObserver observer : observers)
+                observer.nextAtom(column);
 
             // TODO: Should deal with removing unneeded tombstones
             tombstoneTracker.update(column, false);
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.concurrent.ScheduledExecutors;
+import org.apache.cassandra.concurrent.Stage;
+import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.exceptions.WriteTimeoutException;
+import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.Pair;
+
+/**
+ * Accumulates the counter increments this node leads over a short window, per partition, and then applies them
+ * with a single locked read-modify-write, replicated as one mutation. Unlike {@link CounterMutation#applyCoalesced()},
+ * which only merges the increments that pile up behind a lock, this bounds the number of reads and writes of a hot
+ * counter to one per window whatever the contention, and doesn't hold a thread per increment while it waits.
+ *
+ * The deltas can't be applied blindly, as explained in {@link CounterMutation#apply()}, so they are only added up
+ * in memory; each increment is acknowledged once the accumulation holding it has been applied. Increments that
+ * can't be coalesced are not accumulated.
+ */
+public class CounterAccumulator
+{
+    private static final Logger logger = LoggerFactory.getLogger(CounterAccumulator.class);
+
+    public static final CounterAccumulator instance = new CounterAccumulator(DatabaseDescriptor.getCounterWriteAccumulationWindow());
+
+    public interface Listener
+    {
+        /**
+         * Called once the accumulation holding the increment has been applied.
+         *
+         * @param result the mutation applied for the whole accumulation
+         * @param replicate whether this is the one increment of the accumulation that replicates the result
+         */
+        void onApplied(Mutation result, boolean replicate) throws Exception;
+    }
+
+    private final long windowMillis;
+    private final ConcurrentMap<Pair<String, ByteBuffer>, Accumulation> accumulations = new ConcurrentHashMap<>();
+
+    @VisibleForTesting
+    CounterAccumulator(long windowMillis)
+    {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @return true if the increment will be applied with the others made to its partition within the window, and
+     * the listener called then; false if accumulation is disabled or the increment can't be coalesced, in which
+     * case it is up to the caller to apply it
+     */
+    public boolean accumulate(CounterMutation mutation, Listener listener)
+    {
+        if (windowMillis <= 0 || !mutation.isCoalescable(Keyspace.open(mutation.getKeyspaceName())))
+            return false;
+
+        Pair<String, ByteBuffer> partition = Pair.create(mutation.getKeyspaceName(), mutation.key());
+        while (true)
+        {
+            Accumulation current = accumulations.get(partition);
+            if (current == null)
+            {
+                Accumulation accumulation = new Accumulation(partition);
+                accumulation.add(mutation, listener);
+                if (accumulations.putIfAbsent(partition, accumulation) == null)
+                {
+                    ScheduledExecutors.scheduledTasks.schedule(accumulation, windowMillis, TimeUnit.MILLISECONDS);
+                    return true;
+                }
+            }
+            else if (current.add(mutation, listener))
+            {
+                Tracing.trace("Accumulating counter update");
+                return true;
+            }
+            else
+            {
+                // its window is over, start a new one
+                accumulations.remove(partition, current);
+            }
+        }
+    }
+
+    private class Accumulation implements Runnable
+    {
+        private final Pair<String, ByteBuffer> partition;
+        private final List<CounterMutation> mutations = new ArrayList<>();
+        private final List<Listener> listeners = new ArrayList<>();
+        private boolean closed;
+
+        Accumulation(Pair<String, ByteBuffer> partition)
+        {
+            this.partition = partition;
+        }
+
+        synchronized boolean add(CounterMutation mutation, Listener listener)
+        {
+            if (closed)
+                return false;
+            mutations.add(mutation);
+            listeners.add(listener);
+            return true;
+        }
+
+        // none can be added afterwards
+        synchronized void close()
+        {
+            closed = true;
+        }
+
+        // called once the window is over; the lock waits and the write happen on the counter mutation stage
+        public void run()
+        {
+            accumulations.remove(partition, this);
+            close();
+            StageManager.getStage(Stage.COUNTER_MUTATION).execute(new Runnable()
+            {
+                public void run()
+                {
+                    apply();
+                }
+            });
+        }
+
+        private void apply()
+        {
+            Mutation result;
+            try
+            {
+                result = CounterMutation.merge(mutations).apply();
+            }
+            catch (WriteTimeoutException e)
+            {
+                // as for a single increment, the coordinators will time out
+                logger.debug("Timed out applying {} accumulated counter updates to {}", mutations.size(), partition.left);
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to apply {} accumulated counter updates to {}", mutations.size(), partition.left, e);
+                return;
+            }
+
+            for (int i = 0; i < listeners.size(); i++)
+            {
+                try
+                {
+                    listeners.get(i).onApplied(result, i == 0);
+                }
+                catch (Exception e)
+                {
+                    logger.error("Failed to complete an accumulated counter update", e);
+                }
+            }
+        }
+    }
+}
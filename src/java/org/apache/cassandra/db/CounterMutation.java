@@ -21,12 +21,18 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.Striped;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -48,6 +54,9 @@ public class CounterMutation implements IMutation
 
     private static final Striped<Lock> LOCKS = Striped.lazyWeakLock(DatabaseDescriptor.getConcurrentCounterWriters() * 1024);
 
+    // the increments of each partition waiting on their counter locks, see applyCoalesced()
+    private static final ConcurrentMap<Pair<String, ByteBuffer>, Batch> BATCHES = new ConcurrentHashMap<>();
+
     private final Mutation mutation;
     private final ConsistencyLevel consistency;
 
@@ -102,30 +111,85 @@ public class CounterMutation implements IMutation
      * 5. Updates the counter cache
      * 6. Releases the lock(s)
      *
+     * The read can't be skipped by writing the delta alone: the leader writes its shard as a global shard, and
+     * replicas reconcile global shards by keeping the one with the highest clock, so two blind deltas with the same
+     * clock would lose one of the increments. {@link CounterAccumulator} adds hot increments up in memory instead,
+     * so that they share a single read.
+     *
      * See CASSANDRA-4775 and CASSANDRA-6504 for further details.
      *
      * @return the applied resulting Mutation
      */
     public Mutation apply() throws WriteTimeoutException
     {
-        Mutation result = new Mutation(getKeyspaceName(), key());
         Keyspace keyspace = Keyspace.open(getKeyspaceName());
+        List<Lock> locks = new ArrayList<>(getCounterCount());
+        try
+        {
+            grabCounterLocks(keyspace, locks);
+            return applyLocked(keyspace);
+        }
+        finally
+        {
+            for (Lock lock : locks)
+                lock.unlock();
+        }
+    }
 
-        int count = 0;
-        for (ColumnFamily cf : getColumnFamilies())
-            count += cf.getColumnCount();
+    /**
+     * Applies the counter mutation like apply(), but lets the increments to the same counters that arrive while it
+     * waits for their locks join it, so that a hot counter is read and written once for a whole batch of increments.
+     * The waiting increments are merged into a single mutation, which is applied and replicated by the one that got
+     * the locks.
+     *
+     * Only increments at a consistency level met by this replica alone are coalesced, as the others are not sent
+     * to the other replicas by their own write.
+     *
+     * @return the applied resulting Mutation, or null if this mutation was applied as part of another one, which
+     * is the one to replicate
+     */
+    public Mutation applyCoalesced() throws WriteTimeoutException
+    {
+        Keyspace keyspace = Keyspace.open(getKeyspaceName());
+        if (!isCoalescable(keyspace))
+            return apply();
+
+        Pair<String, ByteBuffer> partition = Pair.create(getKeyspaceName(), key());
+        Batch batch = new Batch(this);
+        Batch current;
+        while ((current = BATCHES.putIfAbsent(partition, batch)) != null)
+        {
+            // we can only join increments whose locks cover ours
+            if (!current.covers(this))
+                return apply();
+
+            if (current.join(this))
+            {
+                Tracing.trace("Coalescing counter update with concurrent updates");
+                current.await(this, keyspace);
+                return null;
+            }
+            BATCHES.remove(partition, current);
+        }
 
-        List<Lock> locks = new ArrayList<>(count);
-        Tracing.trace("Acquiring {} counter locks", count);
+        List<Lock> locks = new ArrayList<>(getCounterCount());
         try
         {
             grabCounterLocks(keyspace, locks);
-            for (ColumnFamily cf : getColumnFamilies())
-                result.add(processModifications(cf));
-            result.apply();
-            updateCounterCache(result, keyspace);
+            List<CounterMutation> mutations = batch.close();
+            BATCHES.remove(partition, batch);
+
+            Mutation result = mutations.size() == 1 ? applyLocked(keyspace) : merge(mutations).applyLocked(keyspace);
+            batch.applied.set(null);
             return result;
         }
+        catch (RuntimeException | Error e)
+        {
+            batch.close();
+            BATCHES.remove(partition, batch);
+            batch.applied.setException(e);
+            throw e;
+        }
         finally
         {
             for (Lock lock : locks)
@@ -133,8 +197,54 @@ public class CounterMutation implements IMutation
         }
     }
 
+    private int getCounterCount()
+    {
+        int count = 0;
+        for (ColumnFamily cf : getColumnFamilies())
+            count += cf.getColumnCount();
+        return count;
+    }
+
+    // Only increments are merged, as the deltas of the same counter simply add up.
+    boolean isCoalescable(Keyspace keyspace)
+    {
+        if (consistency.blockFor(keyspace) != 1)
+            return false;
+
+        for (ColumnFamily cf : getColumnFamilies())
+        {
+            if (!cf.deletionInfo().isLive())
+                return false;
+            for (Cell cell : cf)
+                if (!(cell instanceof CounterUpdateCell))
+                    return false;
+        }
+        return true;
+    }
+
+    static CounterMutation merge(List<CounterMutation> mutations)
+    {
+        CounterMutation first = mutations.get(0);
+        Mutation merged = new Mutation(first.getKeyspaceName(), first.key());
+        for (CounterMutation mutation : mutations)
+            for (ColumnFamily cf : mutation.getColumnFamilies())
+                merged.addOrGet(cf.metadata()).addAll(cf);
+        return new CounterMutation(merged, first.consistency());
+    }
+
+    private Mutation applyLocked(Keyspace keyspace)
+    {
+        Mutation result = new Mutation(getKeyspaceName(), key());
+        for (ColumnFamily cf : getColumnFamilies())
+            result.add(processModifications(cf));
+        result.apply();
+        updateCounterCache(result, keyspace);
+        return result;
+    }
+
     private void grabCounterLocks(Keyspace keyspace, List<Lock> locks) throws WriteTimeoutException
     {
+        Tracing.trace("Acquiring {} counter locks", getCounterCount());
         long startTime = System.nanoTime();
 
         for (Lock lock : LOCKS.bulkGet(getCounterLockKeys()))
@@ -313,6 +423,74 @@ public class CounterMutation implements IMutation
         return String.format("CounterMutation(%s, %s)", mutation.toString(shallow), consistency);
     }
 
+    /**
+     * Increments to the counters of a partition, applied at once by the first of them, whose counters all the others
+     * are a subset of, once it gets their locks.
+     */
+    private static class Batch
+    {
+        private final CounterMutation first;
+        private final List<CounterMutation> mutations = new ArrayList<>();
+        private final SettableFuture<Void> applied = SettableFuture.create();
+        private boolean closed;
+
+        Batch(CounterMutation first)
+        {
+            this.first = first;
+            mutations.add(first);
+        }
+
+        boolean covers(CounterMutation mutation)
+        {
+            for (ColumnFamily cf : mutation.getColumnFamilies())
+            {
+                ColumnFamily firstCf = first.mutation.getColumnFamily(cf.id());
+                if (firstCf == null)
+                    return false;
+                for (Cell cell : cf)
+                    if (firstCf.getColumn(cell.name()) == null)
+                        return false;
+            }
+            return true;
+        }
+
+        synchronized boolean join(CounterMutation mutation)
+        {
+            if (closed)
+                return false;
+            mutations.add(mutation);
+            return true;
+        }
+
+        // returns the increments to apply; none can join afterwards
+        synchronized List<CounterMutation> close()
+        {
+            closed = true;
+            return mutations;
+        }
+
+        void await(CounterMutation mutation, Keyspace keyspace) throws WriteTimeoutException
+        {
+            try
+            {
+                applied.get(mutation.getTimeout(), TimeUnit.MILLISECONDS);
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof WriteTimeoutException)
+                    throw new WriteTimeoutException(WriteType.COUNTER, mutation.consistency(), 0, mutation.consistency().blockFor(keyspace));
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw Throwables.propagate(cause);
+            }
+            catch (TimeoutException | InterruptedException e)
+            {
+                throw new WriteTimeoutException(WriteType.COUNTER, mutation.consistency(), 0, mutation.consistency().blockFor(keyspace));
+            }
+        }
+    }
+
     public static class CounterMutationSerializer implements IVersionedSerializer<CounterMutation>
     {
         public void serialize(CounterMutation cm, DataOutputPlus out, int version) throws IOException
@@ -787,7 +787,15 @@ public class DataTracker
             if (intervalTree.isEmpty())
                 return Collections.emptyList();
             RowPosition stopInTree = rowBounds.right.isMinimum() ? intervalTree.max() : rowBounds.right;
-            return intervalTree.search(Interval.<RowPosition, SSTableReader>create(rowBounds.left, stopInTree));
+            List<SSTableReader> overlapping = intervalTree.search(Interval.<RowPosition, SSTableReader>create(rowBounds.left, stopInTree));
+            // the tree only knows the first and last keys; drop the sstables that have nothing in between
+            List<SSTableReader> sstables = new ArrayList<>(overlapping.size());
+            for (SSTableReader sstable : overlapping)
+            {
+                if (sstable.mayHaveKeysIn(rowBounds))
+                    sstables.add(sstable);
+            }
+            return sstables;
         }
     }
 }
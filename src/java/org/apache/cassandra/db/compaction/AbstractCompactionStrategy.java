@@ -53,12 +53,15 @@ public abstract class AbstractCompactionStrategy
     // minimum interval needed to perform tombstone removal compaction in seconds, default 86400 or 1 day.
     protected static final long DEFAULT_TOMBSTONE_COMPACTION_INTERVAL = 86400;
     protected static final boolean DEFAULT_UNCHECKED_TOMBSTONE_COMPACTION_OPTION = false;
+    protected static final int DEFAULT_PARALLEL_RANGES = 1;
 
     protected static final String TOMBSTONE_THRESHOLD_OPTION = "tombstone_threshold";
     protected static final String TOMBSTONE_COMPACTION_INTERVAL_OPTION = "tombstone_compaction_interval";
     // disable range overlap check when deciding if an SSTable is candidate for tombstone compaction (CASSANDRA-6563)
     protected static final String UNCHECKED_TOMBSTONE_COMPACTION_OPTION = "unchecked_tombstone_compaction";
     protected static final String COMPACTION_ENABLED = "enabled";
+    // number of disjoint token ranges a single compaction is split into, each merged and written on its own thread
+    protected static final String PARALLEL_RANGES_OPTION = "parallel_ranges";
 
     public final Map<String, String> options;
 
@@ -66,6 +69,7 @@ public abstract class AbstractCompactionStrategy
     protected float tombstoneThreshold;
     protected long tombstoneCompactionInterval;
     protected boolean uncheckedTombstoneCompaction;
+    protected int parallelRanges;
     protected boolean disableTombstoneCompactions = false;
 
     /**
@@ -99,6 +103,8 @@ public abstract class AbstractCompactionStrategy
             tombstoneCompactionInterval = optionValue == null ? DEFAULT_TOMBSTONE_COMPACTION_INTERVAL : Long.parseLong(optionValue);
             optionValue = options.get(UNCHECKED_TOMBSTONE_COMPACTION_OPTION);
             uncheckedTombstoneCompaction = optionValue == null ? DEFAULT_UNCHECKED_TOMBSTONE_COMPACTION_OPTION : Boolean.parseBoolean(optionValue);
+            optionValue = options.get(PARALLEL_RANGES_OPTION);
+            parallelRanges = optionValue == null ? DEFAULT_PARALLEL_RANGES : Integer.parseInt(optionValue);
             if (!shouldBeEnabled())
                 this.disable();
         }
@@ -108,6 +114,7 @@ public abstract class AbstractCompactionStrategy
             tombstoneThreshold = DEFAULT_TOMBSTONE_THRESHOLD;
             tombstoneCompactionInterval = DEFAULT_TOMBSTONE_COMPACTION_INTERVAL;
             uncheckedTombstoneCompaction = DEFAULT_UNCHECKED_TOMBSTONE_COMPACTION_OPTION;
+            parallelRanges = DEFAULT_PARALLEL_RANGES;
         }
     }
 
@@ -344,6 +351,14 @@ public abstract class AbstractCompactionStrategy
         }
     }
 
+    /**
+     * @return the number of disjoint token ranges a compaction of this strategy may be split into
+     */
+    public int getParallelRanges()
+    {
+        return parallelRanges;
+    }
+
     public ScannerList getScanners(Collection<SSTableReader> toCompact)
     {
         return getScanners(toCompact, null);
@@ -451,6 +466,23 @@ public abstract class AbstractCompactionStrategy
                 throw new ConfigurationException(String.format("'%s' should be either 'true' or 'false', not '%s'",UNCHECKED_TOMBSTONE_COMPACTION_OPTION, unchecked));
         }
 
+        String ranges = options.get(PARALLEL_RANGES_OPTION);
+        if (ranges != null)
+        {
+            try
+            {
+                int parallelRanges = Integer.parseInt(ranges);
+                if (parallelRanges < 1)
+                {
+                    throw new ConfigurationException(String.format("%s must be at least 1, but was %d", PARALLEL_RANGES_OPTION, parallelRanges));
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                throw new ConfigurationException(String.format("%s is not a parsable int (base10) for %s", ranges, PARALLEL_RANGES_OPTION), e);
+            }
+        }
+
         String compactionEnabled = options.get(COMPACTION_ENABLED);
         if (compactionEnabled != null)
         {
@@ -464,6 +496,7 @@ public abstract class AbstractCompactionStrategy
         uncheckedOptions.remove(TOMBSTONE_COMPACTION_INTERVAL_OPTION);
         uncheckedOptions.remove(UNCHECKED_TOMBSTONE_COMPACTION_OPTION);
         uncheckedOptions.remove(COMPACTION_ENABLED);
+        uncheckedOptions.remove(PARALLEL_RANGES_OPTION);
         return uncheckedOptions;
     }
 
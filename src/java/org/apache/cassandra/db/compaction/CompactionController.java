@@ -19,6 +19,7 @@ package org.apache.cassandra.db.compaction;
 
 import java.util.*;
 
+import org.apache.cassandra.io.sstable.TokenCoverage;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,10 +82,42 @@ public class CompactionController implements AutoCloseable
         if (compacting == null)
             overlappingSSTables = Refs.tryRef(Collections.<SSTableReader>emptyList());
         else
-            overlappingSSTables = cfs.getAndReferenceOverlappingSSTables(compacting);
+            overlappingSSTables = withoutDisjointCoverage(cfs.getAndReferenceOverlappingSSTables(compacting), compacting);
         this.overlapIterator = new OverlapIterator<>(buildIntervals(overlappingSSTables));
     }
 
+    /**
+     * Releases the overlapping sstables whose token coverage has no bucket in common with the compacting ones.
+     * Such sstables share no partition with the compaction, so they can neither hold data shadowed by its
+     * tombstones nor keep it from dropping expired sstables.
+     */
+    private static Refs<SSTableReader> withoutDisjointCoverage(Refs<SSTableReader> overlapping, Iterable<SSTableReader> compacting)
+    {
+        List<TokenCoverage> coverages = new ArrayList<>();
+        for (SSTableReader sstable : compacting)
+        {
+            if (sstable.getTokenCoverage() == null)
+                return overlapping;
+            coverages.add(sstable.getTokenCoverage());
+        }
+        if (coverages.isEmpty())
+            return overlapping;
+
+        TokenCoverage compactingCoverage = TokenCoverage.merge(coverages);
+        List<SSTableReader> disjoint = new ArrayList<>();
+        for (SSTableReader sstable : overlapping)
+        {
+            if (sstable.getTokenCoverage() != null && !compactingCoverage.intersects(sstable.getTokenCoverage()))
+                disjoint.add(sstable);
+        }
+        if (!disjoint.isEmpty())
+        {
+            logger.debug("Ignoring {} overlapping sstables with no partition in common with the compaction", disjoint.size());
+            overlapping.release(disjoint);
+        }
+        return overlapping;
+    }
+
     public Set<SSTableReader> getFullyExpiredSSTables()
     {
         return getFullyExpiredSSTables(cfs, compacting, overlappingSSTables, gcBefore);
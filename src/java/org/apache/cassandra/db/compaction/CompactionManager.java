@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -32,10 +33,16 @@ import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.management.openmbean.OpenDataException;
@@ -52,6 +59,7 @@ import org.apache.cassandra.cache.AutoSavingCache;
 import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
 import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
@@ -75,6 +83,8 @@ import org.apache.cassandra.metrics.CompactionMetrics;
 import org.apache.cassandra.repair.Validator;
 import org.apache.cassandra.service.ActiveRepairService;
 import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.tracing.TraceState;
+import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.JVMStabilityInspector;
 import org.apache.cassandra.utils.MerkleTree;
@@ -122,27 +132,39 @@ public class CompactionManager implements CompactionManagerMBean
         {
             throw new RuntimeException(e);
         }
+        if (DatabaseDescriptor.isCompactionThroughputAdaptive())
+            ScheduledExecutors.optionalTasks.scheduleWithFixedDelay(instance.throughputController,
+                                                                    CompactionThroughputController.UPDATE_INTERVAL_IN_MS,
+                                                                    CompactionThroughputController.UPDATE_INTERVAL_IN_MS,
+                                                                    TimeUnit.MILLISECONDS);
     }
 
-    private final CompactionExecutor executor = new CompactionExecutor();
+    private final CompactionExecutor executor = new PrioritizedCompactionExecutor();
     private final CompactionExecutor validationExecutor = new ValidationExecutor();
+    private final CompactionExecutor validationSegmentExecutor = new ValidationSegmentExecutor();
+    private final CompactionExecutor rangeCompactionExecutor = new RangeCompactionExecutor();
+    private final CompactionExecutor indexBuildBatchExecutor = new IndexBuildBatchExecutor();
     private final static CompactionExecutor cacheCleanupExecutor = new CacheCleanupExecutor();
 
-    private final CompactionMetrics metrics = new CompactionMetrics(executor, validationExecutor);
+    private final CompactionMetrics metrics = new CompactionMetrics(executor, validationExecutor, validationSegmentExecutor);
     private final Multiset<ColumnFamilyStore> compactingCF = ConcurrentHashMultiset.create();
 
     private final RateLimiter compactionRateLimiter = RateLimiter.create(Double.MAX_VALUE);
+    private final CompactionThroughputController throughputController = new CompactionThroughputController(this);
 
     /**
      * Gets compaction rate limiter. When compaction_throughput_mb_per_sec is 0 or node is bootstrapping,
-     * this returns rate limiter with the rate of Double.MAX_VALUE bytes per second.
+     * this returns rate limiter with the rate of Double.MAX_VALUE bytes per second. When
+     * compaction_throughput_adaptive is set, the rate follows the CompactionThroughputController.
      * Rate unit is bytes per sec.
      *
      * @return RateLimiter with rate limit set
      */
     public RateLimiter getRateLimiter()
     {
-        double currentThroughput = DatabaseDescriptor.getCompactionThroughputMbPerSec() * 1024.0 * 1024.0;
+        double currentThroughput = (DatabaseDescriptor.isCompactionThroughputAdaptive()
+                                    ? throughputController.getThroughputMbPerSec()
+                                    : DatabaseDescriptor.getCompactionThroughputMbPerSec()) * 1024.0 * 1024.0;
         // if throughput is set to 0, throttling is disabled
         if (currentThroughput == 0 || StorageService.instance.isBootstrapMode())
             currentThroughput = Double.MAX_VALUE;
@@ -211,10 +233,12 @@ public class CompactionManager implements CompactionManagerMBean
     class BackgroundCompactionTask implements Runnable
     {
         private final ColumnFamilyStore cfs;
+        private final double priority;
 
         BackgroundCompactionTask(ColumnFamilyStore cfs)
         {
             this.cfs = cfs;
+            this.priority = estimateReadAmplificationReduction(cfs);
         }
 
         public void run()
@@ -245,6 +269,16 @@ public class CompactionManager implements CompactionManagerMBean
         }
     }
 
+    /**
+     * Estimates how much compacting the table would save its reads: the number of extra sstables its reads
+     * touched on average, weighted by its recent read rate. Queued background compactions are run in that order.
+     */
+    private static double estimateReadAmplificationReduction(ColumnFamilyStore cfs)
+    {
+        double sstablesPerRead = cfs.metric.sstablesPerReadHistogram.cf.getSnapshot().getMean();
+        return Math.max(0, sstablesPerRead - 1) * cfs.metric.readLatency.latency.getOneMinuteRate();
+    }
+
     private AllSSTableOpStatus parallelAllSSTableOperation(final ColumnFamilyStore cfs, final OneSSTableOperation operation) throws ExecutionException, InterruptedException
     {
         Iterable<SSTableReader> compactingSSTables = cfs.markAllCompacting();
@@ -647,6 +681,15 @@ public class CompactionManager implements CompactionManagerMBean
         return validationExecutor.submit(callable);
     }
 
+    /**
+     * Runs the merge of one token range of a compaction task that was split by range.
+     * The task submitting it is expected to wait for its completion.
+     */
+    public Future<?> submitRangeCompaction(Runnable runnable)
+    {
+        return rangeCompactionExecutor.submit(runnable);
+    }
+
     /* Used in tests. */
     public void disableAutoCompaction()
     {
@@ -1069,32 +1112,22 @@ public class CompactionManager implements CompactionManagerMBean
             MerkleTree tree = new MerkleTree(cfs.partitioner, validator.desc.range, MerkleTree.RECOMMENDED_DEPTH, (int) Math.pow(2, depth));
 
             long start = System.nanoTime();
-            try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategy().getScanners(sstables, validator.desc.range))
+            try
             {
-                CompactionIterable ci = new ValidationCompactionIterable(cfs, scanners.scanners, gcBefore);
-                Iterator<AbstractCompactedRow> iter = ci.iterator();
-                metrics.beginCompaction(ci);
-                try
-                {
-                    // validate the CF as we iterate over it
-                    validator.prepare(cfs, tree);
-                    while (iter.hasNext())
-                    {
-                        if (ci.isStopRequested())
-                            throw new CompactionInterruptedException(ci.getCompactionInfo());
-                        AbstractCompactedRow row = iter.next();
-                        validator.add(row);
-                    }
-                    validator.complete();
-                }
-                finally
+                // validate the CF as we iterate over it
+                validator.prepare(cfs, tree);
+                List<Validator.Segment> segments = validator.split(DatabaseDescriptor.getConcurrentValidationSegments());
+                if (segments.size() == 1)
+                    validateSegment(cfs, sstables, segments.get(0), gcBefore, new AtomicBoolean());
+                else
+                    validateSegments(cfs, sstables, segments, gcBefore);
+                validator.complete();
+            }
+            finally
+            {
+                if (isSnapshotValidation)
                 {
-                    if (isSnapshotValidation)
-                    {
-                        cfs.clearSnapshot(snapshotName);
-                    }
-
-                    metrics.finishCompaction(ci);
+                    cfs.clearSnapshot(snapshotName);
                 }
             }
 
@@ -1119,6 +1152,85 @@ public class CompactionManager implements CompactionManagerMBean
 
 
 
+    /**
+     * Validates the segments in parallel. If one fails, the others are stopped, and all of them are waited for
+     * before the failure is rethrown, since they still use the sstables and snapshot the caller releases then.
+     */
+    private void validateSegments(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, List<Validator.Segment> segments, int gcBefore) throws IOException
+    {
+        AtomicBoolean stopSegments = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(segments.size());
+        for (Validator.Segment segment : segments)
+            futures.add(submitValidationSegment(cfs, sstables, segment, gcBefore, stopSegments));
+
+        Throwable fail = null;
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (Throwable t)
+            {
+                Throwable cause = t instanceof ExecutionException ? t.getCause() : t;
+                stopSegments.set(true);
+                // report the segment that failed rather than the segments we interrupted because of it
+                if (fail == null || (fail instanceof CompactionInterruptedException && !(cause instanceof CompactionInterruptedException)))
+                    fail = cause;
+            }
+        }
+
+        if (fail != null)
+        {
+            Throwables.propagateIfInstanceOf(fail, IOException.class);
+            throw Throwables.propagate(fail);
+        }
+    }
+
+    private Future<?> submitValidationSegment(final ColumnFamilyStore cfs,
+                                              final Collection<SSTableReader> sstables,
+                                              final Validator.Segment segment,
+                                              final int gcBefore,
+                                              final AtomicBoolean stopSegments)
+    {
+        Runnable runnable = new WrappedRunnable()
+        {
+            protected void runMayThrow() throws IOException
+            {
+                validateSegment(cfs, sstables, segment, gcBefore, stopSegments);
+            }
+        };
+        return validationSegmentExecutor.submit(runnable);
+    }
+
+    /**
+     * Feeds the merged rows of the given sstables that fall within the segment's range to the segment, until
+     * stopSegments is set because another segment of the validation failed.
+     */
+    private void validateSegment(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, Validator.Segment segment, int gcBefore, AtomicBoolean stopSegments) throws IOException
+    {
+        try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategy().getScanners(sstables, segment.range))
+        {
+            CompactionIterable ci = new ValidationCompactionIterable(cfs, scanners.scanners, gcBefore);
+            Iterator<AbstractCompactedRow> iter = ci.iterator();
+            metrics.beginCompaction(ci);
+            try
+            {
+                while (iter.hasNext())
+                {
+                    if (ci.isStopRequested() || stopSegments.get())
+                        throw new CompactionInterruptedException(ci.getCompactionInfo());
+                    AbstractCompactedRow row = iter.next();
+                    segment.add(row);
+                }
+            }
+            finally
+            {
+                metrics.finishCompaction(ci);
+            }
+        }
+    }
+
     /**
      * Splits up an sstable into two new sstables. The first of the new tables will store repaired ranges, the second
      * will store the non-repaired ranges. Once anticompation is completed, the original sstable is marked as compacted
@@ -1271,6 +1383,15 @@ public class CompactionManager implements CompactionManagerMBean
         return executor.submit(runnable);
     }
 
+    /**
+     * Indexes one batch of the partitions of an index build. The builder submitting it bounds the number of
+     * batches in flight and waits for them to complete.
+     */
+    public Future<?> submitIndexBuildBatch(Runnable runnable)
+    {
+        return indexBuildBatchExecutor.submit(runnable);
+    }
+
     public Future<?> submitCacheWrite(final AutoSavingCache.Writer writer)
     {
         Runnable runnable = new Runnable()
@@ -1371,11 +1492,6 @@ public class CompactionManager implements CompactionManagerMBean
             this(threadCount, threadCount, name, new LinkedBlockingQueue<Runnable>());
         }
 
-        public CompactionExecutor()
-        {
-            this(Math.max(1, DatabaseDescriptor.getConcurrentCompactors()), "CompactionExecutor");
-        }
-
         protected void beforeExecute(Thread t, Runnable r)
         {
             // can't set this in Thread factory, so we do it redundantly here
@@ -1410,6 +1526,105 @@ public class CompactionManager implements CompactionManagerMBean
         }
     }
 
+    /**
+     * The main compaction executor, whose queue is ordered by {@link PrioritizedCompactionFuture#COMPARATOR}.
+     */
+    private static class PrioritizedCompactionExecutor extends CompactionExecutor
+    {
+        public PrioritizedCompactionExecutor()
+        {
+            super(Math.max(1, DatabaseDescriptor.getConcurrentCompactors()),
+                  Math.max(1, DatabaseDescriptor.getConcurrentCompactors()),
+                  "CompactionExecutor",
+                  new PriorityBlockingQueue<Runnable>(11, PrioritizedCompactionFuture.COMPARATOR));
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T result)
+        {
+            double priority = runnable instanceof BackgroundCompactionTask
+                            ? ((BackgroundCompactionTask) runnable).priority
+                            : PrioritizedCompactionFuture.REQUESTED;
+            return new PrioritizedCompactionFuture<>(Executors.callable(runnable, result), priority);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable)
+        {
+            return new PrioritizedCompactionFuture<>(callable, PrioritizedCompactionFuture.REQUESTED);
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r)
+        {
+            if (r instanceof PrioritizedCompactionFuture)
+                ((PrioritizedCompactionFuture) r).setupContext();
+            super.beforeExecute(t, r);
+        }
+
+        @Override
+        public void afterExecute(Runnable r, Throwable t)
+        {
+            super.afterExecute(r, t);
+            if (r instanceof PrioritizedCompactionFuture)
+                ((PrioritizedCompactionFuture) r).reset();
+        }
+    }
+
+    /**
+     * Orders the queue of the compaction executor: explicitly requested operations come first, in submission order,
+     * followed by background compactions by decreasing priority. Like the tasks of other executors, it carries the
+     * trace state of the thread submitting it, if any, to the thread running it.
+     */
+    private static class PrioritizedCompactionFuture<T> extends FutureTask<T>
+    {
+        private static final double REQUESTED = Double.POSITIVE_INFINITY;
+        private static final AtomicLong sequenceGenerator = new AtomicLong();
+
+        private static final Comparator<Runnable> COMPARATOR = new Comparator<Runnable>()
+        {
+            public int compare(Runnable r1, Runnable r2)
+            {
+                int cmp = Double.compare(priority(r2), priority(r1));
+                return cmp != 0 ? cmp : Long.compare(sequence(r1), sequence(r2));
+            }
+        };
+
+        private final double priority;
+        private final long sequence;
+        private final TraceState traceState;
+
+        private PrioritizedCompactionFuture(Callable<T> callable, double priority)
+        {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequenceGenerator.incrementAndGet();
+            this.traceState = Tracing.instance.get();
+        }
+
+        private void setupContext()
+        {
+            if (traceState != null)
+                Tracing.instance.set(traceState);
+        }
+
+        private void reset()
+        {
+            if (traceState != null)
+                Tracing.instance.set(null);
+        }
+
+        private static double priority(Runnable r)
+        {
+            return r instanceof PrioritizedCompactionFuture ? ((PrioritizedCompactionFuture) r).priority : REQUESTED;
+        }
+
+        private static long sequence(Runnable r)
+        {
+            return r instanceof PrioritizedCompactionFuture ? ((PrioritizedCompactionFuture) r).sequence : 0;
+        }
+    }
+
     private static class ValidationExecutor extends CompactionExecutor
     {
         public ValidationExecutor()
@@ -1418,6 +1633,39 @@ public class CompactionManager implements CompactionManagerMBean
         }
     }
 
+    /**
+     * Runs the token sub-ranges of validations that are split across several threads.
+     */
+    private static class ValidationSegmentExecutor extends CompactionExecutor
+    {
+        public ValidationSegmentExecutor()
+        {
+            super(Math.max(1, DatabaseDescriptor.getConcurrentValidationSegments()), "ValidationSegmentExecutor");
+        }
+    }
+
+    /**
+     * Runs the token ranges of compactions that are split across several threads.
+     */
+    private static class RangeCompactionExecutor extends CompactionExecutor
+    {
+        public RangeCompactionExecutor()
+        {
+            super(FBUtilities.getAvailableProcessors(), "RangeCompactionExecutor");
+        }
+    }
+
+    /**
+     * Reads and indexes the partitions of index builds, which are split into batches of keys.
+     */
+    private static class IndexBuildBatchExecutor extends CompactionExecutor
+    {
+        public IndexBuildBatchExecutor()
+        {
+            super(FBUtilities.getAvailableProcessors(), "IndexBuildBatchExecutor");
+        }
+    }
+
     private static class CacheCleanupExecutor extends CompactionExecutor
     {
         public CacheCleanupExecutor()
@@ -1540,6 +1788,24 @@ public class CompactionManager implements CompactionManagerMBean
         executor.setMaximumPoolSize(number);
     }
 
+    /**
+     * Resizes the compaction executor, letting compactions that are already running complete.
+     */
+    void setCompactorThreads(int number)
+    {
+        // the core size must never exceed the maximum size
+        if (number < executor.getCorePoolSize())
+        {
+            executor.setCorePoolSize(number);
+            executor.setMaximumPoolSize(number);
+        }
+        else
+        {
+            executor.setMaximumPoolSize(number);
+            executor.setCorePoolSize(number);
+        }
+    }
+
     public int getCoreValidationThreads()
     {
         return validationExecutor.getCorePoolSize();
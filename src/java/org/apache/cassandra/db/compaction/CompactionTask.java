@@ -18,22 +18,28 @@
 package org.apache.cassandra.db.compaction;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
 import org.apache.cassandra.db.compaction.writers.CompactionAwareWriter;
 import org.apache.cassandra.db.compaction.writers.DefaultCompactionWriter;
+import org.apache.cassandra.db.compaction.writers.RangeCompactionWriter;
 import org.apache.cassandra.io.sstable.format.SSTableFormat;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.commons.lang3.StringUtils;
@@ -42,10 +48,16 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.db.compaction.CompactionManager.CompactionExecutorStatsCollector;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.service.ActiveRepairService;
 import org.apache.cassandra.utils.UUIDGen;
+import org.apache.cassandra.utils.WrappedRunnable;
+
+import static org.apache.cassandra.utils.Throwables.merge;
 
 public class CompactionTask extends AbstractCompactionTask
 {
@@ -53,6 +65,8 @@ public class CompactionTask extends AbstractCompactionTask
     protected final int gcBefore;
     private final boolean offline;
     protected static long totalBytesCompacted = 0;
+    // minimum number of index summary samples for each range a compaction is split into
+    private static final int MIN_SAMPLES_PER_RANGE = 4;
     private CompactionExecutorStatsCollector collector;
 
     public CompactionTask(ColumnFamilyStore cfs, Iterable<SSTableReader> sstables, int gcBefore, boolean offline)
@@ -155,75 +169,114 @@ public class CompactionTask extends AbstractCompactionTask
             SSTableFormat.Type sstableFormat = getFormatType(sstables);
 
             List<SSTableReader> newSStables;
-            AbstractCompactionIterable ci;
+            long[] mergedRowCounts;
 
-            // SSTableScanners need to be closed before markCompactedSSTablesReplaced call as scanners contain references
-            // to both ifile and dfile and SSTR will throw deletion errors on Windows if it tries to delete before scanner is closed.
-            // See CASSANDRA-8019 and CASSANDRA-8399
-            try (AbstractCompactionStrategy.ScannerList scanners = strategy.getScanners(actuallyCompact))
+            List<Range<Token>> ranges = getRanges(actuallyCompact);
+            if (ranges.size() > 1)
             {
-                ci = new CompactionIterable(compactionType, scanners.scanners, controller, sstableFormat);
-                Iterator<AbstractCompactedRow> iter = ci.iterator();
-                if (collector != null)
-                    collector.beginCompaction(ci);
-                long lastCheckObsoletion = start;
-                CompactionAwareWriter writer = null;
+                RangeCompaction[] rangeCompactions = new RangeCompaction[ranges.size()];
+                for (int i = 0; i < rangeCompactions.length; i++)
+                    rangeCompactions[i] = new RangeCompaction(ranges.get(i), strategy, actuallyCompact, sstableFormat);
+
                 try
                 {
-                    if (!controller.cfs.getCompactionStrategy().isActive)
-                       throw new CompactionInterruptedException(ci.getCompactionInfo());
-                    if (!iter.hasNext())
-                    {
-                        // don't mark compacted in the finally block, since if there _is_ nondeleted data,
-                        // we need to sync it (via closeAndOpen) first, so there is no period during which
-                        // a crash could cause data loss.
-                        cfs.markObsolete(sstables, compactionType);
-                        return;
-                    }
-                    writer = getCompactionAwareWriter(cfs, sstables, actuallyCompact);
-                    estimatedKeys = writer.estimatedKeys();
-                    while (iter.hasNext())
-                    {
-                        if (ci.isStopRequested())
-                            throw new CompactionInterruptedException(ci.getCompactionInfo());
-
-                        AbstractCompactedRow row = iter.next();
-                        if (writer.append(row))
-                            totalKeysWritten++;
+                    newSStables = compactRanges(rangeCompactions);
+                }
+                finally
+                {
+                    // point of no return -- the new sstables are live on disk; next we'll start deleting the old ones
+                    // (in replaceCompactedSSTables)
+                    if (taskId != null)
+                        SystemKeyspace.finishCompaction(taskId);
+                }
 
-                        if (System.nanoTime() - lastCheckObsoletion > TimeUnit.MINUTES.toNanos(1L))
-                        {
-                            controller.maybeRefreshOverlaps();
-                            lastCheckObsoletion = System.nanoTime();
-                        }
-                    }
+                if (newSStables == null)
+                {
+                    cfs.markObsolete(sstables, compactionType);
+                    return;
+                }
 
-                    // don't replace old sstables yet, as we need to mark the compaction finished in the system table
-                    newSStables = writer.finish();
+                mergedRowCounts = new long[0];
+                for (RangeCompaction rangeCompaction : rangeCompactions)
+                {
+                    totalKeysWritten += rangeCompaction.keysWritten;
+                    estimatedKeys += rangeCompaction.estimatedKeys;
+                    mergedRowCounts = addMergedRowCounts(mergedRowCounts, rangeCompaction.mergedRowCounts);
                 }
-                catch (Throwable t)
+            }
+            else
+            {
+                AbstractCompactionIterable ci;
+
+                // SSTableScanners need to be closed before markCompactedSSTablesReplaced call as scanners contain references
+                // to both ifile and dfile and SSTR will throw deletion errors on Windows if it tries to delete before scanner is closed.
+                // See CASSANDRA-8019 and CASSANDRA-8399
+                try (AbstractCompactionStrategy.ScannerList scanners = strategy.getScanners(actuallyCompact))
                 {
+                    ci = new CompactionIterable(compactionType, scanners.scanners, controller, sstableFormat);
+                    Iterator<AbstractCompactedRow> iter = ci.iterator();
+                    if (collector != null)
+                        collector.beginCompaction(ci);
+                    long lastCheckObsoletion = start;
+                    CompactionAwareWriter writer = null;
                     try
                     {
-                        if (writer != null)
-                            writer.abort();
+                        if (!controller.cfs.getCompactionStrategy().isActive)
+                           throw new CompactionInterruptedException(ci.getCompactionInfo());
+                        if (!iter.hasNext())
+                        {
+                            // don't mark compacted in the finally block, since if there _is_ nondeleted data,
+                            // we need to sync it (via closeAndOpen) first, so there is no period during which
+                            // a crash could cause data loss.
+                            cfs.markObsolete(sstables, compactionType);
+                            return;
+                        }
+                        writer = getCompactionAwareWriter(cfs, sstables, actuallyCompact);
+                        estimatedKeys = writer.estimatedKeys();
+                        while (iter.hasNext())
+                        {
+                            if (ci.isStopRequested())
+                                throw new CompactionInterruptedException(ci.getCompactionInfo());
+
+                            AbstractCompactedRow row = iter.next();
+                            if (writer.append(row))
+                                totalKeysWritten++;
+
+                            if (System.nanoTime() - lastCheckObsoletion > TimeUnit.MINUTES.toNanos(1L))
+                            {
+                                controller.maybeRefreshOverlaps();
+                                lastCheckObsoletion = System.nanoTime();
+                            }
+                        }
+
+                        // don't replace old sstables yet, as we need to mark the compaction finished in the system table
+                        newSStables = writer.finish();
                     }
-                    catch (Throwable t2)
+                    catch (Throwable t)
                     {
-                        t.addSuppressed(t2);
+                        try
+                        {
+                            if (writer != null)
+                                writer.abort();
+                        }
+                        catch (Throwable t2)
+                        {
+                            t.addSuppressed(t2);
+                        }
+                        throw t;
                     }
-                    throw t;
-                }
-                finally
-                {
-                    // point of no return -- the new sstables are live on disk; next we'll start deleting the old ones
-                    // (in replaceCompactedSSTables)
-                    if (taskId != null)
-                        SystemKeyspace.finishCompaction(taskId);
+                    finally
+                    {
+                        // point of no return -- the new sstables are live on disk; next we'll start deleting the old ones
+                        // (in replaceCompactedSSTables)
+                        if (taskId != null)
+                            SystemKeyspace.finishCompaction(taskId);
 
-                    if (collector != null)
-                        collector.finishCompaction(ci);
+                        if (collector != null)
+                            collector.finishCompaction(ci);
+                    }
                 }
+                mergedRowCounts = ci.getMergedRowCounts();
             }
 
             Collection<SSTableReader> oldSStables = this.sstables;
@@ -242,7 +295,7 @@ public class CompactionTask extends AbstractCompactionTask
 
             double mbps = dTime > 0 ? (double) endsize / (1024 * 1024) / ((double) dTime / 1000) : 0;
             long totalSourceRows = 0;
-            String mergeSummary = updateCompactionHistory(cfs.keyspace.getName(), cfs.getColumnFamilyName(), ci, startsize, endsize);
+            String mergeSummary = updateCompactionHistory(cfs.keyspace.getName(), cfs.getColumnFamilyName(), mergedRowCounts, startsize, endsize);
             logger.info(String.format("Compacted (%s) %d sstables to [%s] to level=%d.  %,d bytes to %,d (~%d%% of original) in %,dms = %fMB/s.  %,d total partitions merged to %,d.  Partition merge counts were {%s}",
                                       taskIdLoggerMsg, oldSStables.size(), newSSTableNames.toString(), getLevel(), startsize, endsize, (int) (ratio * 100), dTime, mbps, totalSourceRows, totalKeysWritten, mergeSummary));
             logger.debug(String.format("CF Total Bytes Compacted: %,d", CompactionTask.addToTotalBytesCompacted(endsize)));
@@ -256,6 +309,214 @@ public class CompactionTask extends AbstractCompactionTask
         }
     }
 
+    /**
+     * @return the number of disjoint token ranges this task may be split into, each merged on its own thread
+     */
+    protected int getParallelRanges()
+    {
+        return cfs.getCompactionStrategy().getParallelRanges();
+    }
+
+    /**
+     * Splits the token space into at most {@link #getParallelRanges()} ranges holding roughly the same number
+     * of partitions, based on the index summary samples of the sstables to compact.
+     */
+    protected List<Range<Token>> getRanges(Set<SSTableReader> toCompact)
+    {
+        Token minimum = cfs.partitioner.getMinimumToken();
+        Range<Token> fullRange = new Range<>(minimum, minimum);
+        // index sstables use the LocalPartitioner, where a key can sort at the minimum token
+        int count = offline || cfs.isIndex() ? 1 : getParallelRanges();
+        if (count <= 1)
+            return Collections.singletonList(fullRange);
+
+        List<Token> tokens = new ArrayList<>();
+        for (SSTableReader sstable : toCompact)
+        {
+            for (DecoratedKey sample : sstable.getKeySamples(fullRange))
+                tokens.add(sample.getToken());
+        }
+        Collections.sort(tokens);
+
+        // not worth splitting what we only have a handful of samples for
+        count = Math.min(count, tokens.size() / MIN_SAMPLES_PER_RANGE);
+        List<Range<Token>> ranges = new ArrayList<>(Math.max(1, count));
+        Token left = minimum;
+        for (int i = 1; i < count; i++)
+        {
+            Token right = tokens.get(i * tokens.size() / count);
+            if (right.compareTo(left) > 0)
+            {
+                ranges.add(new Range<>(left, right));
+                left = right;
+            }
+        }
+        ranges.add(new Range<>(left, minimum));
+        return ranges;
+    }
+
+    /**
+     * Merges each range on its own thread, then finishes the writers of all ranges together, or aborts all of
+     * them if any range failed, so that the caller can swap the results in as a whole.
+     *
+     * @return the new sstables, or null if all the ranges compacted down to nothing
+     */
+    private List<SSTableReader> compactRanges(RangeCompaction[] rangeCompactions)
+    {
+        List<Future<?>> futures = new ArrayList<>(rangeCompactions.length);
+        for (RangeCompaction rangeCompaction : rangeCompactions)
+            futures.add(CompactionManager.instance.submitRangeCompaction(rangeCompaction));
+
+        Throwable fail = null;
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (Throwable t)
+            {
+                Throwable cause = t instanceof ExecutionException ? t.getCause() : t;
+                if (fail == null)
+                {
+                    // no point in carrying on with the other ranges
+                    for (RangeCompaction rangeCompaction : rangeCompactions)
+                        rangeCompaction.stop();
+                    fail = cause;
+                }
+                else if (cause instanceof CompactionInterruptedException)
+                {
+                    fail = merge(fail, cause);
+                }
+                else
+                {
+                    // report the range that failed rather than the ranges we interrupted because of it
+                    fail = merge(cause, fail);
+                }
+            }
+        }
+
+        List<SSTableReader> newSStables = new ArrayList<>();
+        int finished = 0;
+        if (fail == null)
+        {
+            try
+            {
+                for (; finished < rangeCompactions.length; finished++)
+                {
+                    CompactionAwareWriter writer = rangeCompactions[finished].writer;
+                    if (writer != null)
+                        newSStables.addAll(writer.finish());
+                }
+                return newSStables.isEmpty() ? null : newSStables;
+            }
+            catch (Throwable t)
+            {
+                // the sstables of the ranges already finished are live: abort the remaining ranges only
+                fail = t;
+            }
+        }
+
+        for (int i = finished; i < rangeCompactions.length; i++)
+        {
+            try
+            {
+                CompactionAwareWriter writer = rangeCompactions[i].writer;
+                if (writer != null)
+                    writer.abort();
+            }
+            catch (Throwable t)
+            {
+                fail = merge(fail, t);
+            }
+        }
+        throw Throwables.propagate(fail);
+    }
+
+    private static long[] addMergedRowCounts(long[] counts, long[] toAdd)
+    {
+        long[] sum = Arrays.copyOf(counts, Math.max(counts.length, toAdd.length));
+        for (int i = 0; i < toAdd.length; i++)
+            sum[i] += toAdd[i];
+        return sum;
+    }
+
+    /**
+     * Merges the part of the compacted sstables that falls within one token range, on a thread of its own.
+     * The writer is left unfinished, so that all the ranges of the task can be finished or aborted together.
+     */
+    private class RangeCompaction extends WrappedRunnable
+    {
+        private final Range<Token> range;
+        private final AbstractCompactionStrategy strategy;
+        private final Set<SSTableReader> actuallyCompact;
+        private final SSTableFormat.Type sstableFormat;
+        private volatile boolean stopRequested;
+
+        private CompactionAwareWriter writer;
+        private long keysWritten;
+        private long estimatedKeys;
+        private long[] mergedRowCounts = new long[0];
+
+        private RangeCompaction(Range<Token> range, AbstractCompactionStrategy strategy, Set<SSTableReader> actuallyCompact, SSTableFormat.Type sstableFormat)
+        {
+            this.range = range;
+            this.strategy = strategy;
+            this.actuallyCompact = actuallyCompact;
+            this.sstableFormat = sstableFormat;
+        }
+
+        private void stop()
+        {
+            stopRequested = true;
+        }
+
+        protected void runMayThrow() throws Exception
+        {
+            // the overlap tracking of a controller expects increasing keys, so each range needs its own
+            try (CompactionController controller = getCompactionController(sstables);
+                 AbstractCompactionStrategy.ScannerList scanners = strategy.getScanners(actuallyCompact, range))
+            {
+                CompactionIterable ci = new CompactionIterable(compactionType, scanners.scanners, controller, sstableFormat);
+                Iterator<AbstractCompactedRow> iter = ci.iterator();
+                if (collector != null)
+                    collector.beginCompaction(ci);
+                long lastCheckObsoletion = System.nanoTime();
+                try
+                {
+                    if (!controller.cfs.getCompactionStrategy().isActive)
+                        throw new CompactionInterruptedException(ci.getCompactionInfo());
+                    if (!iter.hasNext())
+                        return;
+
+                    writer = getRangeCompactionWriter(cfs, sstables, actuallyCompact, range);
+                    estimatedKeys = writer.estimatedKeys();
+                    while (iter.hasNext())
+                    {
+                        if (ci.isStopRequested() || stopRequested)
+                            throw new CompactionInterruptedException(ci.getCompactionInfo());
+
+                        AbstractCompactedRow row = iter.next();
+                        if (writer.append(row))
+                            keysWritten++;
+
+                        if (System.nanoTime() - lastCheckObsoletion > TimeUnit.MINUTES.toNanos(1L))
+                        {
+                            controller.maybeRefreshOverlaps();
+                            lastCheckObsoletion = System.nanoTime();
+                        }
+                    }
+                }
+                finally
+                {
+                    mergedRowCounts = ci.getMergedRowCounts();
+                    if (collector != null)
+                        collector.finishCompaction(ci);
+                }
+            }
+        }
+    }
+
     @Override
     public CompactionAwareWriter getCompactionAwareWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables)
     {
@@ -263,9 +524,22 @@ public class CompactionTask extends AbstractCompactionTask
 
     }
 
+    /**
+     * @return the writer for the part of the compaction that falls within @param range, when the task is split
+     * into parallel ranges. It must not open its output early.
+     */
+    protected CompactionAwareWriter getRangeCompactionWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables, Range<Token> range)
+    {
+        return new RangeCompactionWriter(cfs, allSSTables, nonExpiredSSTables, range, compactionType);
+    }
+
     public static String updateCompactionHistory(String keyspaceName, String columnFamilyName, AbstractCompactionIterable ci, long startSize, long endSize)
     {
-        long[] counts = ci.getMergedRowCounts();
+        return updateCompactionHistory(keyspaceName, columnFamilyName, ci.getMergedRowCounts(), startSize, endSize);
+    }
+
+    public static String updateCompactionHistory(String keyspaceName, String columnFamilyName, long[] counts, long startSize, long endSize)
+    {
         StringBuilder mergeSummary = new StringBuilder(counts.length * 10);
         Map<Integer, Long> mergedRows = new HashMap<>();
         for (int i = 0; i < counts.length; i++)
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.ColumnFamilyMetrics;
+
+/**
+ * Adjusts compaction throughput and the number of running compactors by feedback from the local read latency,
+ * when compaction_throughput_adaptive is enabled.
+ *
+ * Both are cut back multiplicatively while reads are slower than the configured target, and raised again
+ * additively once they are not, within [compaction_throughput_min_mb_per_sec, compaction_throughput_mb_per_sec]
+ * and [1, concurrent_compactors]. Compaction is not slowed down while its backlog is large, as letting sstables
+ * pile up would only make reads slower still.
+ */
+public class CompactionThroughputController implements Runnable
+{
+    private static final Logger logger = LoggerFactory.getLogger(CompactionThroughputController.class);
+
+    public static final long UPDATE_INTERVAL_IN_MS = 5000;
+
+    // pending compactions per compactor above which compaction is considered to be falling behind
+    private static final int BACKLOG_PER_COMPACTOR = 4;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_FRACTION = 0.1;
+
+    private final CompactionManager manager;
+    private volatile double throughputMbPerSec;
+    private volatile int compactors;
+
+    CompactionThroughputController(CompactionManager manager)
+    {
+        this.manager = manager;
+        this.throughputMbPerSec = DatabaseDescriptor.getCompactionThroughputMbPerSec();
+        this.compactors = Math.max(1, DatabaseDescriptor.getConcurrentCompactors());
+    }
+
+    public void run()
+    {
+        double readLatencyMs = ColumnFamilyMetrics.globalReadLatency.latency.getSnapshot().get99thPercentile() / TimeUnit.MILLISECONDS.toNanos(1);
+        update(readLatencyMs, manager.getPendingTasks());
+        if (manager.getMaximumCompactorThreads() != compactors)
+            manager.setCompactorThreads(compactors);
+    }
+
+    @VisibleForTesting
+    void update(double readLatencyMs, int pendingTasks)
+    {
+        int maxThroughput = DatabaseDescriptor.getCompactionThroughputMbPerSec();
+        int minThroughput = Math.min(maxThroughput, DatabaseDescriptor.getCompactionThroughputMinMbPerSec());
+        int maxCompactors = Math.max(1, DatabaseDescriptor.getConcurrentCompactors());
+
+        boolean behind = pendingTasks > BACKLOG_PER_COMPACTOR * maxCompactors;
+        if (readLatencyMs > DatabaseDescriptor.getCompactionReadLatencyTargetMs() && !behind)
+        {
+            throughputMbPerSec = Math.max(minThroughput, throughputMbPerSec * DECREASE_FACTOR);
+            compactors = Math.max(1, compactors - 1);
+        }
+        else
+        {
+            throughputMbPerSec = Math.min(maxThroughput, throughputMbPerSec + maxThroughput * INCREASE_FRACTION);
+            compactors = Math.min(maxCompactors, compactors + 1);
+        }
+        // the configured bounds can be changed at runtime
+        throughputMbPerSec = Math.max(minThroughput, Math.min(maxThroughput, throughputMbPerSec));
+        compactors = Math.min(maxCompactors, compactors);
+
+        logger.trace("Read latency {}ms with {} pending compactions: compacting at {}MB/s with {} compactors",
+                     readLatencyMs, pendingTasks, throughputMbPerSec, compactors);
+    }
+
+    /**
+     * @return the throughput compaction should currently be throttled to, in MB/s; 0 when it is unthrottled
+     */
+    public double getThroughputMbPerSec()
+    {
+        return DatabaseDescriptor.getCompactionThroughputMbPerSec() == 0 ? 0 : throughputMbPerSec;
+    }
+
+    public int getCompactors()
+    {
+        return compactors;
+    }
+}
@@ -17,12 +17,17 @@
  */
 package org.apache.cassandra.db.compaction;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.compaction.writers.CompactionAwareWriter;
 import org.apache.cassandra.db.compaction.writers.MajorLeveledCompactionWriter;
 import org.apache.cassandra.db.compaction.writers.MaxSSTableSizeWriter;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 
 public class LeveledCompactionTask extends CompactionTask
@@ -53,6 +58,62 @@ public class LeveledCompactionTask extends CompactionTask
         return false;
     }
 
+    @Override
+    protected CompactionAwareWriter getRangeCompactionWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables, Range<Token> range)
+    {
+        return new MaxSSTableSizeWriter(cfs, sstables, nonExpiredSSTables, range, maxSSTableBytes, getLevel(), compactionType);
+    }
+
+    @Override
+    protected int getParallelRanges()
+    {
+        // a major compaction fills the levels one after the other, and sstables compacted into L0 may overlap anyway
+        if (majorCompaction || level == 0)
+            return 1;
+        return super.getParallelRanges();
+    }
+
+    /**
+     * Splits the compaction at the boundaries between the input sstables that already are in the target level,
+     * so that each range rewrites a disjoint group of them together with the part of the lower level sstables
+     * that overlaps it. L0 sstables usually span the whole ring, so this is what lets an L0 to L1 compaction
+     * run on several threads at once.
+     */
+    @Override
+    protected List<Range<Token>> getRanges(Set<SSTableReader> toCompact)
+    {
+        int count = getParallelRanges();
+        List<SSTableReader> inLevel = new ArrayList<>();
+        for (SSTableReader sstable : toCompact)
+        {
+            if (sstable.getSSTableLevel() == level)
+                inLevel.add(sstable);
+        }
+        if (count <= 1 || cfs.isIndex() || inLevel.size() < 2)
+            return super.getRanges(toCompact);
+
+        Collections.sort(inLevel, SSTableReader.sstableComparator);
+        long bytesPerRange = SSTableReader.getTotalBytes(inLevel) / Math.min(count, inLevel.size());
+        Token minimum = cfs.partitioner.getMinimumToken();
+        List<Range<Token>> ranges = new ArrayList<>(count);
+        Token left = minimum;
+        long bytes = 0;
+        for (int i = 0; i < inLevel.size() - 1 && ranges.size() < count - 1; i++)
+        {
+            bytes += inLevel.get(i).onDiskLength();
+            Token right = inLevel.get(i).last.getToken();
+            // a range ends with the last token of an sstable, which must not also be the first of the next one
+            if (bytes >= bytesPerRange && right.compareTo(left) > 0 && right.compareTo(inLevel.get(i + 1).first.getToken()) < 0)
+            {
+                ranges.add(new Range<>(left, right));
+                left = right;
+                bytes = 0;
+            }
+        }
+        ranges.add(new Range<>(left, minimum));
+        return ranges;
+    }
+
     protected int getLevel()
     {
         return level;
@@ -348,5 +348,12 @@ public class SizeTieredCompactionStrategy extends AbstractCompactionStrategy
         {
             return new SplittingSizeTieredCompactionWriter(cfs, allSSTables, nonExpiredSSTables, compactionType);
         }
+
+        @Override
+        protected int getParallelRanges()
+        {
+            // the output is split by size, by a single writer
+            return 1;
+        }
     }
 }
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.*;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.cql3.statements.CFPropDefs;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+
+/**
+ * Groups sstables into fixed, non-overlapping time windows by their max timestamp.
+ *
+ * The window that is currently being written to is compacted with size tiering; once a window closes, all of
+ * its sstables are compacted together and it is never rewritten again, unlike the ever growing tiers of
+ * {@link DateTieredCompactionStrategy}. Fully expired sstables are looked for periodically and dropped
+ * on their own, without being read.
+ */
+public class TimeWindowCompactionStrategy extends AbstractCompactionStrategy
+{
+    private static final Logger logger = LoggerFactory.getLogger(TimeWindowCompactionStrategy.class);
+
+    private final TimeWindowCompactionStrategyOptions options;
+    protected volatile int estimatedRemainingTasks;
+    private final Set<SSTableReader> sstables = new HashSet<>();
+    private long lastExpiredCheck;
+
+    public TimeWindowCompactionStrategy(ColumnFamilyStore cfs, Map<String, String> options)
+    {
+        super(cfs, options);
+        this.estimatedRemainingTasks = 0;
+        this.options = new TimeWindowCompactionStrategyOptions(options);
+        if (!options.containsKey(AbstractCompactionStrategy.TOMBSTONE_COMPACTION_INTERVAL_OPTION) && !options.containsKey(AbstractCompactionStrategy.TOMBSTONE_THRESHOLD_OPTION))
+        {
+            disableTombstoneCompactions = true;
+            logger.debug("Disabling tombstone compactions for TWCS");
+        }
+        else
+            logger.debug("Enabling tombstone compactions for TWCS");
+    }
+
+    @Override
+    public synchronized AbstractCompactionTask getNextBackgroundTask(int gcBefore)
+    {
+        if (!isEnabled())
+            return null;
+
+        while (true)
+        {
+            List<SSTableReader> latestBucket = getNextBackgroundSSTables(gcBefore);
+
+            if (latestBucket.isEmpty())
+                return null;
+
+            if (cfs.getDataTracker().markCompacting(latestBucket))
+                return new CompactionTask(cfs, latestBucket, gcBefore, false);
+        }
+    }
+
+    private List<SSTableReader> getNextBackgroundSSTables(final int gcBefore)
+    {
+        if (!isEnabled() || cfs.getSSTables().isEmpty())
+            return Collections.emptyList();
+
+        Set<SSTableReader> uncompacting = Sets.intersection(sstables, cfs.getUncompactingSSTables());
+
+        // Fully expired sstables are compacted on their own: the task finds nothing left to merge and simply
+        // drops them, so a window that has entirely expired is deleted without being read.
+        if (System.currentTimeMillis() - lastExpiredCheck > options.expiredSSTableCheckFrequency)
+        {
+            Set<SSTableReader> expired = CompactionController.getFullyExpiredSSTables(cfs, uncompacting, cfs.getOverlappingSSTables(uncompacting), gcBefore);
+            lastExpiredCheck = System.currentTimeMillis();
+            if (!expired.isEmpty())
+            {
+                logger.debug("Dropping expired sstables: {}", expired);
+                return Lists.newArrayList(expired);
+            }
+        }
+
+        Set<SSTableReader> candidates = Sets.newHashSet(filterSuspectSSTables(uncompacting));
+        return getNextNonExpiredSSTables(candidates, gcBefore);
+    }
+
+    private List<SSTableReader> getNextNonExpiredSSTables(Iterable<SSTableReader> nonExpiringSSTables, final int gcBefore)
+    {
+        List<SSTableReader> mostInteresting = getCompactionCandidates(nonExpiringSSTables);
+        if (!mostInteresting.isEmpty())
+            return mostInteresting;
+
+        // if there is no sstable to compact in standard way, try compacting single sstable whose droppable tombstone
+        // ratio is greater than threshold.
+        List<SSTableReader> sstablesWithTombstones = Lists.newArrayList();
+        for (SSTableReader sstable : nonExpiringSSTables)
+        {
+            if (worthDroppingTombstones(sstable, gcBefore))
+                sstablesWithTombstones.add(sstable);
+        }
+        if (sstablesWithTombstones.isEmpty())
+            return Collections.emptyList();
+
+        return Collections.singletonList(Collections.min(sstablesWithTombstones, new SSTableReader.SizeComparator()));
+    }
+
+    private List<SSTableReader> getCompactionCandidates(Iterable<SSTableReader> candidateSSTables)
+    {
+        long now = getNow();
+        TreeMap<Long, List<SSTableReader>> buckets = getBuckets(candidateSSTables, options.windowLength);
+        logger.debug("Compaction buckets are {}", buckets);
+        updateEstimatedCompactionsByTasks(buckets, getWindowLowerBound(now, options.windowLength));
+        return newestBucket(buckets,
+                            cfs.getMinimumCompactionThreshold(),
+                            cfs.getMaximumCompactionThreshold(),
+                            getWindowLowerBound(now, options.windowLength),
+                            options.stcsOptions);
+    }
+
+    /**
+     * Gets the timestamp that TimeWindowCompactionStrategy considers to be the "current time".
+     * @return the maximum timestamp across all SSTables.
+     * @throws java.util.NoSuchElementException if there are no SSTables.
+     */
+    private long getNow()
+    {
+        return Collections.max(cfs.getSSTables(), new Comparator<SSTableReader>()
+        {
+            public int compare(SSTableReader o1, SSTableReader o2)
+            {
+                return Long.compare(o1.getMaxTimestamp(), o2.getMaxTimestamp());
+            }
+        }).getMaxTimestamp();
+    }
+
+    /**
+     * @param timestamp a timestamp, in the table's timestamp resolution
+     * @param windowLength the width of a window, in the same resolution
+     * @return the first timestamp of the window that contains <code>timestamp</code>
+     */
+    @VisibleForTesting
+    static long getWindowLowerBound(long timestamp, long windowLength)
+    {
+        long remainder = timestamp % windowLength;
+        return remainder < 0 ? timestamp - remainder - windowLength : timestamp - remainder;
+    }
+
+    /**
+     * Group files by the window their max timestamp falls into.
+     * @param files the sstables to group
+     * @param windowLength the width of a window, in the table's timestamp resolution
+     * @return the sstables of each window, keyed by the window lower bound, newest window first
+     */
+    @VisibleForTesting
+    static TreeMap<Long, List<SSTableReader>> getBuckets(Iterable<SSTableReader> files, long windowLength)
+    {
+        TreeMap<Long, List<SSTableReader>> buckets = new TreeMap<>(Collections.reverseOrder());
+        for (SSTableReader sstable : files)
+        {
+            long lowerBound = getWindowLowerBound(sstable.getMaxTimestamp(), windowLength);
+            List<SSTableReader> bucket = buckets.get(lowerBound);
+            if (bucket == null)
+            {
+                bucket = Lists.newArrayList();
+                buckets.put(lowerBound, bucket);
+            }
+            bucket.add(sstable);
+        }
+        return buckets;
+    }
+
+    private void updateEstimatedCompactionsByTasks(TreeMap<Long, List<SSTableReader>> buckets, long currentWindow)
+    {
+        int n = 0;
+        for (Map.Entry<Long, List<SSTableReader>> bucket : buckets.entrySet())
+        {
+            int size = bucket.getValue().size();
+            if (bucket.getKey() >= currentWindow)
+            {
+                if (size >= cfs.getMinimumCompactionThreshold())
+                    n += Math.ceil((double) size / cfs.getMaximumCompactionThreshold());
+            }
+            else if (size >= 2)
+            {
+                n += Math.ceil((double) size / cfs.getMaximumCompactionThreshold());
+            }
+        }
+        estimatedRemainingTasks = n;
+    }
+
+    /**
+     * @param buckets the sstables of each window, newest window first.
+     * @param minThreshold minimum number of sstables in a size tiered bucket of the current window to qualify.
+     * @param maxThreshold maximum number of sstables to compact at once.
+     * @param currentWindow the lower bound of the window currently being written to.
+     * @return the sstables to compact: a size tiered bucket of the current window, or else the newest closed
+     *         window that has not been compacted down to a single sstable yet.
+     */
+    @VisibleForTesting
+    static List<SSTableReader> newestBucket(TreeMap<Long, List<SSTableReader>> buckets, int minThreshold, int maxThreshold, long currentWindow, SizeTieredCompactionStrategyOptions stcsOptions)
+    {
+        for (Map.Entry<Long, List<SSTableReader>> bucket : buckets.entrySet())
+        {
+            List<SSTableReader> sstables = bucket.getValue();
+            if (bucket.getKey() >= currentWindow)
+            {
+                // the window is still being written to, so size tier it until it closes
+                List<List<SSTableReader>> stcsBuckets = SizeTieredCompactionStrategy.getBuckets(SizeTieredCompactionStrategy.createSSTableAndLengthPairs(sstables),
+                                                                                                stcsOptions.bucketHigh,
+                                                                                                stcsOptions.bucketLow,
+                                                                                                stcsOptions.minSSTableSize);
+                List<SSTableReader> stcsInterestingBucket = SizeTieredCompactionStrategy.mostInterestingBucket(stcsBuckets, minThreshold, maxThreshold);
+                if (!stcsInterestingBucket.isEmpty())
+                    return stcsInterestingBucket;
+            }
+            else if (sstables.size() >= 2)
+            {
+                return trimToThreshold(sstables, maxThreshold);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @param bucket the sstables of a single window.
+     * @param maxThreshold maximum number of sstables in a single compaction task.
+     * @return the <code>maxThreshold</code> smallest sstables of the bucket.
+     */
+    @VisibleForTesting
+    static List<SSTableReader> trimToThreshold(List<SSTableReader> bucket, int maxThreshold)
+    {
+        List<SSTableReader> ssTableReaders = new ArrayList<>(bucket);
+        Collections.sort(ssTableReaders, new SSTableReader.SizeComparator());
+        return ssTableReaders.subList(0, Math.min(ssTableReaders.size(), maxThreshold));
+    }
+
+    @Override
+    public void addSSTable(SSTableReader sstable)
+    {
+        sstables.add(sstable);
+    }
+
+    @Override
+    public void removeSSTable(SSTableReader sstable)
+    {
+        sstables.remove(sstable);
+    }
+
+    @Override
+    public synchronized Collection<AbstractCompactionTask> getMaximalTask(int gcBefore, boolean splitOutput)
+    {
+        Iterable<SSTableReader> sstables = cfs.markAllCompacting();
+        if (sstables == null)
+            return null;
+
+        return Arrays.<AbstractCompactionTask>asList(new CompactionTask(cfs, sstables, gcBefore, false));
+    }
+
+    @Override
+    public synchronized AbstractCompactionTask getUserDefinedTask(Collection<SSTableReader> sstables, int gcBefore)
+    {
+        assert !sstables.isEmpty(); // checked for by CM.submitUserDefined
+
+        if (!cfs.getDataTracker().markCompacting(sstables))
+        {
+            logger.debug("Unable to mark {} for compaction; probably a background compaction got to it first.  You can disable background compactions temporarily if this is a problem", sstables);
+            return null;
+        }
+
+        return new CompactionTask(cfs, sstables, gcBefore, false).setUserDefined(true);
+    }
+
+    public int getEstimatedRemainingTasks()
+    {
+        return estimatedRemainingTasks;
+    }
+
+    public long getMaxSSTableBytes()
+    {
+        return Long.MAX_VALUE;
+    }
+
+    public static Map<String, String> validateOptions(Map<String, String> options) throws ConfigurationException
+    {
+        Map<String, String> uncheckedOptions = AbstractCompactionStrategy.validateOptions(options);
+        uncheckedOptions = TimeWindowCompactionStrategyOptions.validateOptions(options, uncheckedOptions);
+
+        uncheckedOptions.remove(CFPropDefs.KW_MINCOMPACTIONTHRESHOLD);
+        uncheckedOptions.remove(CFPropDefs.KW_MAXCOMPACTIONTHRESHOLD);
+
+        return uncheckedOptions;
+    }
+
+    public String toString()
+    {
+        return String.format("TimeWindowCompactionStrategy[%s/%s]",
+                cfs.getMinimumCompactionThreshold(),
+                cfs.getMaximumCompactionThreshold());
+    }
+}
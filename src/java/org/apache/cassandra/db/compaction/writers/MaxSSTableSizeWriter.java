@@ -18,6 +18,7 @@
 package org.apache.cassandra.db.compaction.writers;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -26,6 +27,8 @@ import org.apache.cassandra.db.RowIndexEntry;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
 import org.apache.cassandra.db.compaction.CompactionTask;
 import org.apache.cassandra.db.compaction.OperationType;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.SSTableRewriter;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
@@ -43,16 +46,33 @@ public class MaxSSTableSizeWriter extends CompactionAwareWriter
     private final Set<SSTableReader> allSSTables;
 
     public MaxSSTableSizeWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables, long maxSSTableSize, int level, boolean offline, OperationType compactionType)
+    {
+        this(cfs, allSSTables, nonExpiredSSTables, maxSSTableSize, level, offline, true,
+             SSTableReader.getApproximateKeyCount(nonExpiredSSTables),
+             cfs.getExpectedCompactedFileSize(nonExpiredSSTables, compactionType));
+    }
+
+    /**
+     * Writes the part of a compaction that falls within a single token range, while the other ranges are written
+     * concurrently. As with {@link RangeCompactionWriter}, the output is never opened early.
+     */
+    public MaxSSTableSizeWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables, Range<Token> range, long maxSSTableSize, int level, OperationType compactionType)
+    {
+        this(cfs, allSSTables, nonExpiredSSTables, maxSSTableSize, level, false, false,
+             estimatedKeysForRange(nonExpiredSSTables, range),
+             (long) (cfs.getExpectedCompactedFileSize(nonExpiredSSTables, compactionType) * rangeRatio(nonExpiredSSTables, range)));
+    }
+
+    private MaxSSTableSizeWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables, long maxSSTableSize, int level, boolean offline, boolean openEarly, long estimatedTotalKeys, long totalSize)
     {
         super(cfs, nonExpiredSSTables);
         this.allSSTables = allSSTables;
         this.level = level;
         this.maxSSTableSize = maxSSTableSize;
-        long totalSize = cfs.getExpectedCompactedFileSize(nonExpiredSSTables, compactionType);
         expectedWriteSize = Math.min(maxSSTableSize, totalSize);
-        estimatedTotalKeys = SSTableReader.getApproximateKeyCount(nonExpiredSSTables);
+        this.estimatedTotalKeys = estimatedTotalKeys;
         estimatedSSTables = Math.max(1, estimatedTotalKeys / maxSSTableSize);
-        sstableWriter = new SSTableRewriter(cfs, allSSTables, CompactionTask.getMaxDataAge(nonExpiredSSTables), offline);
+        sstableWriter = new SSTableRewriter(cfs, allSSTables, CompactionTask.getMaxDataAge(nonExpiredSSTables), offline, openEarly);
         File sstableDirectory = cfs.directories.getLocationForDisk(getWriteDirectory(expectedWriteSize));
         SSTableWriter writer = SSTableWriter.create(Descriptor.fromFilename(cfs.getTempSSTablePath(sstableDirectory)),
                                                     estimatedTotalKeys / estimatedSSTables,
@@ -63,6 +83,20 @@ public class MaxSSTableSizeWriter extends CompactionAwareWriter
         sstableWriter.switchWriter(writer);
     }
 
+    private static long estimatedKeysForRange(Set<SSTableReader> sstables, Range<Token> range)
+    {
+        long keys = 0;
+        for (SSTableReader sstable : sstables)
+            keys += sstable.estimatedKeysForRanges(Collections.singleton(range));
+        return Math.max(1, keys);
+    }
+
+    private static double rangeRatio(Set<SSTableReader> sstables, Range<Token> range)
+    {
+        long totalKeys = SSTableReader.getApproximateKeyCount(sstables);
+        return totalKeys > 0 ? Math.min(1.0, (double) estimatedKeysForRange(sstables, range) / totalKeys) : 1.0;
+    }
+
     @Override
     public boolean append(AbstractCompactedRow row)
     {
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction.writers;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.db.compaction.OperationType;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTableRewriter;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.sstable.format.SSTableWriter;
+import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
+
+/**
+ * Writes the part of a compaction that falls within a single token range to one output file in L0.
+ *
+ * Several of these write concurrently over the same input sstables when a compaction is split by token
+ * range, so the output is never opened early: moving the starts of the inputs is only safe when a single
+ * writer progresses through the whole token space.
+ */
+public class RangeCompactionWriter extends CompactionAwareWriter
+{
+    protected static final Logger logger = LoggerFactory.getLogger(RangeCompactionWriter.class);
+    private final SSTableRewriter sstableWriter;
+    private final long estimatedRangeKeys;
+
+    public RangeCompactionWriter(ColumnFamilyStore cfs, Set<SSTableReader> allSSTables, Set<SSTableReader> nonExpiredSSTables, Range<Token> range, OperationType compactionType)
+    {
+        super(cfs, nonExpiredSSTables);
+        long keys = 0;
+        for (SSTableReader sstable : nonExpiredSSTables)
+            keys += sstable.estimatedKeysForRanges(Collections.singleton(range));
+        estimatedRangeKeys = Math.max(1, keys);
+        logger.debug("Expected bloom filter size for {} : {}", range, estimatedRangeKeys);
+
+        sstableWriter = new SSTableRewriter(cfs, allSSTables, maxAge, false, false);
+        double rangeRatio = estimatedTotalKeys > 0 ? Math.min(1.0, (double) estimatedRangeKeys / estimatedTotalKeys) : 1.0;
+        long expectedWriteSize = (long) (cfs.getExpectedCompactedFileSize(nonExpiredSSTables, compactionType) * rangeRatio);
+        File sstableDirectory = cfs.directories.getLocationForDisk(getWriteDirectory(expectedWriteSize));
+        SSTableWriter writer = SSTableWriter.create(Descriptor.fromFilename(cfs.getTempSSTablePath(sstableDirectory)),
+                                                    estimatedRangeKeys,
+                                                    minRepairedAt,
+                                                    cfs.metadata,
+                                                    cfs.partitioner,
+                                                    new MetadataCollector(allSSTables, cfs.metadata.comparator, 0));
+        sstableWriter.switchWriter(writer);
+    }
+
+    @Override
+    public boolean append(AbstractCompactedRow row)
+    {
+        return sstableWriter.append(row) != null;
+    }
+
+    @Override
+    public void abort()
+    {
+        sstableWriter.abort();
+    }
+
+    @Override
+    public List<SSTableReader> finish()
+    {
+        return sstableWriter.finish();
+    }
+
+    @Override
+    public long estimatedKeys()
+    {
+        return estimatedRangeKeys;
+    }
+}
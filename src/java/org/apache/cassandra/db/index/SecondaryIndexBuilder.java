@@ -18,25 +18,46 @@
 package org.apache.cassandra.db.index;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Throwables;
 
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.db.compaction.CompactionInfo;
+import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.db.compaction.OperationType;
 import org.apache.cassandra.db.compaction.CompactionInterruptedException;
 import org.apache.cassandra.io.sstable.ReducingKeyIterator;
+import org.apache.cassandra.utils.FBUtilities;
 
 /**
  * Manages building an entire index from column family data. Runs on to compaction manager.
+ *
+ * Only the partition keys are read on the compaction thread, from the primary indexes. Reading the partitions
+ * and inserting their index entries, which is where the time goes, is done in batches of keys on the index build
+ * executor, with a bounded number of batches in flight. Progress is the share of the primary indexes whose
+ * partitions have all been indexed.
  */
 public class SecondaryIndexBuilder extends CompactionInfo.Holder
 {
+    private static final int BATCH_SIZE = 128;
+    private static final int MAX_PENDING_BATCHES = 2 * FBUtilities.getAvailableProcessors();
+
     private final ColumnFamilyStore cfs;
     private final Set<String> idxNames;
     private final ReducingKeyIterator iter;
 
+    private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+    private final AtomicLong bytesIndexed = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
     public SecondaryIndexBuilder(ColumnFamilyStore cfs, Set<String> idxNames, ReducingKeyIterator iter)
     {
         this.cfs = cfs;
@@ -48,27 +69,96 @@ public class SecondaryIndexBuilder extends CompactionInfo.Holder
     {
         return new CompactionInfo(cfs.metadata,
                                   OperationType.INDEX_BUILD,
-                                  iter.getBytesRead(),
+                                  bytesIndexed.get(),
                                   iter.getTotalBytes());
     }
 
     public void build()
     {
-        while (iter.hasNext())
+        try
         {
-            if (isStopRequested())
-                throw new CompactionInterruptedException(getCompactionInfo());
-            DecoratedKey key = iter.next();
-            Keyspace.indexRow(key, cfs, idxNames);
+            long bytesRead = 0;
+            while (iter.hasNext() && failure.get() == null)
+            {
+                if (isStopRequested())
+                    throw new CompactionInterruptedException(getCompactionInfo());
+
+                List<DecoratedKey> keys = new ArrayList<>(BATCH_SIZE);
+                while (keys.size() < BATCH_SIZE && iter.hasNext())
+                    keys.add(iter.next());
+
+                long batchEnd = iter.getBytesRead();
+                submit(new Batch(keys, batchEnd - bytesRead));
+                bytesRead = batchEnd;
+            }
+        }
+        finally
+        {
+            // wait for the batches in flight, so that no index entries are written once the build has returned
+            pendingBatches.acquireUninterruptibly(MAX_PENDING_BATCHES);
+            pendingBatches.release(MAX_PENDING_BATCHES);
+            try
+            {
+                iter.close();
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
         }
 
+        Throwable t = failure.get();
+        if (t != null)
+            throw Throwables.propagate(t);
+    }
+
+    private void submit(Batch batch)
+    {
+        pendingBatches.acquireUninterruptibly();
         try
         {
-            iter.close();
+            CompactionManager.instance.submitIndexBuildBatch(batch);
+        }
+        catch (RuntimeException | Error e)
+        {
+            pendingBatches.release();
+            throw e;
+        }
+    }
+
+    private class Batch implements Runnable
+    {
+        private final List<DecoratedKey> keys;
+        private final long bytes;
+
+        private Batch(List<DecoratedKey> keys, long bytes)
+        {
+            this.keys = keys;
+            this.bytes = bytes;
         }
-        catch (IOException e)
+
+        public void run()
         {
-            throw new RuntimeException(e);
+            try
+            {
+                for (DecoratedKey key : keys)
+                {
+                    if (failure.get() != null)
+                        return;
+                    if (isStopRequested())
+                        throw new CompactionInterruptedException(getCompactionInfo());
+                    Keyspace.indexRow(key, cfs, idxNames);
+                }
+                bytesIndexed.addAndGet(bytes);
+            }
+            catch (Throwable t)
+            {
+                failure.compareAndSet(null, t);
+            }
+            finally
+            {
+                pendingBatches.release();
+            }
         }
     }
 }
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.index.terms;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.cql3.Operator;
+import org.apache.cassandra.db.Cell;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.index.PerColumnSecondaryIndex;
+import org.apache.cassandra.db.index.SecondaryIndexSearcher;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.CorruptSSTableException;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.ISSTableScanner;
+import org.apache.cassandra.io.sstable.TermIndex;
+import org.apache.cassandra.io.sstable.TermIndexBuilder;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.notifications.INotification;
+import org.apache.cassandra.notifications.INotificationConsumer;
+import org.apache.cassandra.notifications.SSTableDeletingNotification;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.concurrent.Refs;
+
+/**
+ * Indexes the values of a column in a component of each sstable rather than in a separate table: the sstable
+ * writers build a {@link TermIndex} of the values as they write flushed, compacted and streamed partitions, so
+ * the index is merged by compaction and dropped along with the sstables it covers. Unlike the other indexes, this
+ * supports range queries on the indexed values, and with them prefix queries on types compared as bytes.
+ *
+ * Only regular columns of tables without clustering columns can be indexed. Memtables are not indexed: a search
+ * scans them, so a write costs nothing more than the write itself.
+ *
+ * Create it with CREATE CUSTOM INDEX ... USING 'org.apache.cassandra.db.index.terms.TermsIndex'.
+ */
+public class TermsIndex extends PerColumnSecondaryIndex implements INotificationConsumer
+{
+    private ColumnDefinition columnDef;
+    private Component component;
+    private CellName indexedName;
+
+    // the term index of each live sstable searched, opened on first use
+    private final Map<Descriptor, TermIndex> termIndexes = new HashMap<>();
+    private boolean invalidated;
+
+    public void init()
+    {
+        assert baseCfs != null && columnDefs != null && columnDefs.size() == 1;
+        columnDef = columnDefs.iterator().next();
+        component = TermIndexBuilder.componentFor(columnDef);
+        indexedName = baseCfs.metadata.comparator.create(Composites.EMPTY, columnDef);
+        baseCfs.getDataTracker().subscribe(this);
+    }
+
+    public void validateOptions() throws ConfigurationException
+    {
+        ColumnDefinition column = columnDefs.iterator().next();
+        if (!column.isRegular() || column.position() != 0)
+            throw new ConfigurationException("Term indexes are only supported on regular columns of tables without clustering columns");
+        if (column.type.isCollection() && column.type.isMultiCell())
+            throw new ConfigurationException("Term indexes are not supported on non-frozen collections");
+    }
+
+    ColumnDefinition getColumnDef()
+    {
+        return columnDef;
+    }
+
+    CellName indexedName()
+    {
+        return indexedName;
+    }
+
+    public String getIndexName()
+    {
+        return columnDef.getIndexName();
+    }
+
+    public boolean indexes(CellName name)
+    {
+        return baseCfs.metadata.comparator.compare(name, indexedName) == 0;
+    }
+
+    @Override
+    public boolean supportsOperator(Operator operator)
+    {
+        switch (operator)
+        {
+            case EQ:
+            case LT:
+            case LTE:
+            case GT:
+            case GTE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    protected SecondaryIndexSearcher createSecondaryIndexSearcher(Set<ByteBuffer> columns)
+    {
+        return new TermsSearcher(baseCfs.indexManager, columns);
+    }
+
+    // the sstable writers index the values, and the searcher scans the memtables for them
+    public void insert(ByteBuffer rowKey, Cell col, OpOrder.Group opGroup)
+    {
+    }
+
+    public void update(ByteBuffer rowKey, Cell oldCol, Cell col, OpOrder.Group opGroup)
+    {
+    }
+
+    public void delete(ByteBuffer rowKey, Cell col, OpOrder.Group opGroup)
+    {
+    }
+
+    public void deleteForCleanup(ByteBuffer rowKey, Cell col, OpOrder.Group opGroup)
+    {
+    }
+
+    /**
+     * @return the term index of the given sstable, to be closed by the caller. Sstables written before the index
+     * was created are indexed from their data first.
+     */
+    synchronized TermIndex acquire(SSTableReader sstable)
+    {
+        TermIndex termIndex = termIndexes.get(sstable.descriptor);
+        if (termIndex == null)
+        {
+            termIndex = open(sstable);
+            if (invalidated)
+                return termIndex;
+            termIndexes.put(sstable.descriptor, termIndex);
+        }
+        return termIndex.sharedCopy();
+    }
+
+    private TermIndex open(SSTableReader sstable)
+    {
+        File file = new File(sstable.descriptor.filenameFor(component));
+        if (file.exists())
+        {
+            try
+            {
+                TermIndex termIndex = TermIndex.open(file, columnDef.type, baseCfs.partitioner);
+                if (termIndex.columnName().equals(columnDef.name.bytes))
+                    return termIndex;
+
+                // left behind by a dropped index of the same name on another column
+                termIndex.close();
+            }
+            catch (CorruptSSTableException e)
+            {
+                logger.warn("Rebuilding corrupt term index {}", file, e);
+            }
+            FileUtils.deleteWithConfirm(file);
+        }
+
+        build(sstable, file);
+        return TermIndex.open(file, columnDef.type, baseCfs.partitioner);
+    }
+
+    private void build(SSTableReader sstable, File file)
+    {
+        logger.debug("Building {} for {}", getIndexName(), sstable);
+        TermIndexBuilder builder = new TermIndexBuilder(file, baseCfs.metadata, columnDef);
+        try (ISSTableScanner scanner = sstable.getScanner())
+        {
+            while (scanner.hasNext())
+            {
+                OnDiskAtomIterator partition = scanner.next();
+                builder.startPartition(partition.getKey());
+                while (partition.hasNext())
+                    builder.nextAtom(partition.next());
+            }
+        }
+        catch (IOException e)
+        {
+            builder.abort();
+            throw new FSReadError(e, sstable.getFilename());
+        }
+        catch (Throwable t)
+        {
+            builder.abort();
+            throw t;
+        }
+        builder.complete();
+        sstable.addComponents(Collections.singleton(component));
+    }
+
+    public void handleNotification(INotification notification, Object sender)
+    {
+        if (notification instanceof SSTableDeletingNotification)
+            release(((SSTableDeletingNotification) notification).deleting.descriptor);
+    }
+
+    private synchronized void release(Descriptor descriptor)
+    {
+        TermIndex termIndex = termIndexes.remove(descriptor);
+        if (termIndex != null)
+            termIndex.close();
+    }
+
+    @Override
+    protected void buildIndexBlocking()
+    {
+        logger.info("Building {} for the sstables of {}", getIndexName(), baseCfs.name);
+        try (Refs<SSTableReader> sstables = baseCfs.selectAndReference(ColumnFamilyStore.CANONICAL_SSTABLES).refs)
+        {
+            for (SSTableReader sstable : sstables)
+                acquire(sstable).close();
+        }
+        setIndexBuilt();
+        logger.info("Index build of {} complete", getIndexName());
+    }
+
+    public void reload()
+    {
+        // the term indexes hold the column name only, so there is nothing to reload
+    }
+
+    public void forceBlockingFlush()
+    {
+        // the term indexes are written along with the sstables
+    }
+
+    public ColumnFamilyStore getIndexCfs()
+    {
+        return null;
+    }
+
+    public void removeIndex(ByteBuffer columnName)
+    {
+        invalidate();
+    }
+
+    public synchronized void invalidate()
+    {
+        invalidated = true;
+        baseCfs.getDataTracker().unsubscribe(this);
+        for (TermIndex termIndex : termIndexes.values())
+            termIndex.close();
+        termIndexes.clear();
+    }
+
+    public void truncateBlocking(long truncatedAt)
+    {
+        // the truncated sstables take their term indexes with them
+    }
+
+    public synchronized long estimateResultRows()
+    {
+        // assumes the values are spread evenly over the partitions
+        int terms = 1;
+        for (TermIndex termIndex : termIndexes.values())
+            terms = Math.max(terms, termIndex.size());
+        return baseCfs.estimateKeys() / terms;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.index.terms;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.cql3.Operator;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.filter.ExtendedFilter;
+import org.apache.cassandra.db.filter.IDiskAtomFilter;
+import org.apache.cassandra.db.filter.QueryFilter;
+import org.apache.cassandra.db.index.SecondaryIndex;
+import org.apache.cassandra.db.index.SecondaryIndexManager;
+import org.apache.cassandra.db.index.SecondaryIndexSearcher;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.io.sstable.TermIndex;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+
+/**
+ * Searches a {@link TermsIndex} for the partitions with a value of the indexed column equal to, or within the
+ * bounds of, the expressions on it: the term index of each sstable gives the candidates, with those of the
+ * memtables found by scanning them, and each candidate is then read to check it against all of the expressions.
+ */
+public class TermsSearcher extends SecondaryIndexSearcher
+{
+    private static final Logger logger = LoggerFactory.getLogger(TermsSearcher.class);
+
+    public TermsSearcher(SecondaryIndexManager indexManager, Set<ByteBuffer> columns)
+    {
+        super(indexManager, columns);
+    }
+
+    // the base implementations only consider indexes backed by a table
+    @Override
+    public boolean canHandleIndexClause(List<IndexExpression> clause)
+    {
+        return highestSelectivityPredicate(clause, false) != null;
+    }
+
+    @Override
+    protected IndexExpression highestSelectivityPredicate(List<IndexExpression> clause, boolean includeInTrace)
+    {
+        // without statistics on the values, prefer an equality to a range
+        IndexExpression best = null;
+        for (IndexExpression expression : clause)
+        {
+            if (!columns.contains(expression.column))
+                continue;
+
+            SecondaryIndex index = indexManager.getIndexForColumn(expression.column);
+            if (index == null || !index.supportsOperator(expression.operator))
+                continue;
+
+            if (best == null || (expression.operator == Operator.EQ && best.operator != Operator.EQ))
+                best = expression;
+        }
+
+        if (includeInTrace)
+        {
+            if (best == null)
+                Tracing.trace("No applicable indexes found");
+            else
+                Tracing.trace("Scanning with {}", indexManager.getIndexForColumn(best.column).getIndexName());
+        }
+        return best;
+    }
+
+    @Override
+    public List<Row> search(ExtendedFilter filter)
+    {
+        assert filter.getClause() != null && !filter.getClause().isEmpty();
+        IndexExpression primary = highestSelectivityPredicate(filter.getClause(), true);
+        TermsIndex index = (TermsIndex) indexManager.getIndexForColumn(primary.column);
+        TermBounds bounds = new TermBounds(index.getColumnDef().type);
+        for (IndexExpression expression : filter.getClause())
+        {
+            if (expression.column.equals(primary.column))
+                bounds.restrict(expression);
+        }
+        logger.debug("Searching {} for terms {}", index.getIndexName(), bounds);
+
+        // the memtables are read under the read ordering, so keep it open until the rows are read
+        try (OpOrder.Group op = baseCfs.readOrdering.start();
+             ColumnFamilyStore.RefViewFragment view = baseCfs.selectAndReference(ColumnFamilyStore.CANONICAL_SSTABLES))
+        {
+            SortedSet<DecoratedKey> candidates = candidates(index, view, filter.dataRange.keyRange(), bounds);
+            Tracing.trace("Found {} candidate partitions", candidates.size());
+            return baseCfs.filter(getIndexedIterator(filter, candidates.iterator()), filter);
+        }
+    }
+
+    /**
+     * Collects the partitions in the key range of the view whose value may be within the bounds. The canonical
+     * sstables include the originals of any compaction in progress, so no partition is missed while an sstable
+     * being written is opened early.
+     */
+    private SortedSet<DecoratedKey> candidates(TermsIndex index, ColumnFamilyStore.ViewFragment view, AbstractBounds<RowPosition> range, TermBounds bounds)
+    {
+        SortedSet<DecoratedKey> keys = new TreeSet<>(DecoratedKey.comparator);
+        for (SSTableReader sstable : view.sstables)
+        {
+            try (TermIndex termIndex = index.acquire(sstable))
+            {
+                termIndex.keysBetween(bounds.start, bounds.startInclusive, bounds.end, bounds.endInclusive, range, keys);
+            }
+        }
+
+        for (Memtable memtable : view.memtables)
+        {
+            Iterator<Map.Entry<DecoratedKey, ColumnFamily>> iter = memtable.getEntryIterator(range.left, range.right);
+            while (iter.hasNext())
+            {
+                Map.Entry<DecoratedKey, ColumnFamily> entry = iter.next();
+                if (!range.contains(entry.getKey()))
+                    continue;
+
+                Cell cell = entry.getValue().getColumn(index.indexedName());
+                if (cell != null && bounds.contains(cell.value()))
+                    keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    private ColumnFamilyStore.AbstractScanIterator getIndexedIterator(final ExtendedFilter filter, final Iterator<DecoratedKey> candidates)
+    {
+        return new ColumnFamilyStore.AbstractScanIterator()
+        {
+            // the candidates are checked here, against an empty clustering prefix as the tables have no clustering columns
+            public boolean needsFiltering()
+            {
+                return false;
+            }
+
+            protected Row computeNext()
+            {
+                while (candidates.hasNext())
+                {
+                    DecoratedKey dk = candidates.next();
+                    ColumnFamily data = baseCfs.getColumnFamily(new QueryFilter(dk, baseCfs.name, filter.columnFilter(dk.getKey()), filter.timestamp));
+                    if (data == null)
+                        data = ArrayBackedSortedColumns.factory.create(baseCfs.metadata);
+
+                    // as in CFS.filter - extend the filter to ensure we include the columns
+                    // from the index expressions, just in case they weren't included in the initialFilter
+                    IDiskAtomFilter extraFilter = filter.getExtraFilter(dk, data);
+                    if (extraFilter != null)
+                    {
+                        ColumnFamily cf = baseCfs.getColumnFamily(new QueryFilter(dk, baseCfs.name, extraFilter, filter.timestamp));
+                        if (cf != null)
+                            data.addAll(cf);
+                    }
+
+                    // the value may have been overwritten or deleted since the candidate was indexed
+                    if (!filter.isSatisfiedBy(dk, data, Composites.EMPTY, null))
+                        continue;
+
+                    return new Row(dk, filter.prune(dk, data));
+                }
+                return endOfData();
+            }
+
+            public void close()
+            {
+            }
+        };
+    }
+
+    /**
+     * The bounds on the indexed values set by the expressions on the column, null for no bound.
+     */
+    private static class TermBounds
+    {
+        private final AbstractType<?> type;
+        private ByteBuffer start, end;
+        private boolean startInclusive = true, endInclusive = true;
+
+        private TermBounds(AbstractType<?> type)
+        {
+            this.type = type;
+        }
+
+        private void restrict(IndexExpression expression)
+        {
+            switch (expression.operator)
+            {
+                case EQ:
+                    restrictStart(expression.value, true);
+                    restrictEnd(expression.value, true);
+                    break;
+                case GT:
+                    restrictStart(expression.value, false);
+                    break;
+                case GTE:
+                    restrictStart(expression.value, true);
+                    break;
+                case LT:
+                    restrictEnd(expression.value, false);
+                    break;
+                case LTE:
+                    restrictEnd(expression.value, true);
+                    break;
+            }
+        }
+
+        private void restrictStart(ByteBuffer value, boolean inclusive)
+        {
+            int cmp = start == null ? 1 : type.compare(value, start);
+            if (cmp > 0 || (cmp == 0 && !inclusive))
+            {
+                start = value;
+                startInclusive = inclusive;
+            }
+        }
+
+        private void restrictEnd(ByteBuffer value, boolean inclusive)
+        {
+            int cmp = end == null ? -1 : type.compare(value, end);
+            if (cmp < 0 || (cmp == 0 && !inclusive))
+            {
+                end = value;
+                endInclusive = inclusive;
+            }
+        }
+
+        private boolean contains(ByteBuffer value)
+        {
+            if (start != null)
+            {
+                int cmp = type.compare(value, start);
+                if (cmp < 0 || (cmp == 0 && !startInclusive))
+                    return false;
+            }
+            if (end != null)
+            {
+                int cmp = type.compare(value, end);
+                if (cmp > 0 || (cmp == 0 && !endInclusive))
+                    return false;
+            }
+            return true;
+        }
+
+        public String toString()
+        {
+            return String.format("%s%s, %s%s",
+                                 startInclusive ? "[" : "(",
+                                 start == null ? "" : type.getString(start),
+                                 end == null ? "" : type.getString(end),
+                                 endInclusive ? "]" : ")");
+        }
+    }
+}
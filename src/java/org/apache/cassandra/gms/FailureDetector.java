@@ -22,19 +22,18 @@ import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.io.FSWriteError;
 import org.apache.cassandra.io.util.FileUtils;
-import org.apache.cassandra.utils.BoundedStatsDeque;
 import org.apache.cassandra.utils.FBUtilities;
 
 /**
@@ -73,7 +72,7 @@ public class FailureDetector implements IFailureDetector, FailureDetectorMBean
     // change.
     private final double PHI_FACTOR = 1.0 / Math.log(10.0); // 0.434...
 
-    private final Map<InetAddress, ArrivalWindow> arrivalSamples = new Hashtable<InetAddress, ArrivalWindow>();
+    private final Map<InetAddress, ArrivalWindow> arrivalSamples = new ConcurrentHashMap<InetAddress, ArrivalWindow>();
     private final List<IFailureDetectionEventListener> fdEvntListeners = new CopyOnWriteArrayList<IFailureDetectionEventListener>();
 
     public FailureDetector()
@@ -322,7 +321,11 @@ class ArrivalWindow
 {
     private static final Logger logger = LoggerFactory.getLogger(ArrivalWindow.class);
     private long tLast = 0L;
-    private final BoundedStatsDeque arrivalIntervals;
+    // the last inter-arrival times, oldest first from index once full, and their sum
+    private final long[] arrivalIntervals;
+    private int size = 0;
+    private int index = 0;
+    private long sum = 0L;
 
     // this is useless except to provide backwards compatibility in phi_convict_threshold,
     // because everyone seems pretty accustomed to the default of 8, and users who have
@@ -338,7 +341,7 @@ class ArrivalWindow
 
     ArrivalWindow(int size)
     {
-        arrivalIntervals = new BoundedStatsDeque(size);
+        arrivalIntervals = new long[size];
     }
 
     private static long getMaxInterval()
@@ -362,7 +365,7 @@ class ArrivalWindow
         {
             long interArrivalTime = (value - tLast);
             if (interArrivalTime <= MAX_INTERVAL_IN_NANO)
-                arrivalIntervals.add(interArrivalTime);
+                addInterval(interArrivalTime);
             else
                 logger.debug("Ignoring interval time of {} for {}", interArrivalTime, ep);
         }
@@ -371,27 +374,46 @@ class ArrivalWindow
             // We use a very large initial interval since the "right" average depends on the cluster size
             // and it's better to err high (false negatives, which will be corrected by waiting a bit longer)
             // than low (false positives, which cause "flapping").
-            arrivalIntervals.add(FailureDetector.INITIAL_VALUE_NANOS);
+            addInterval(FailureDetector.INITIAL_VALUE_NANOS);
         }
         tLast = value;
     }
 
-    double mean()
+    private void addInterval(long interval)
     {
-        return arrivalIntervals.mean();
+        if (size == arrivalIntervals.length)
+            sum -= arrivalIntervals[index];
+        else
+            size++;
+        arrivalIntervals[index] = interval;
+        sum += interval;
+        index = (index + 1) % arrivalIntervals.length;
+    }
+
+    synchronized double mean()
+    {
+        return size > 0 ? (double) sum / size : 0;
     }
 
     // see CASSANDRA-2597 for an explanation of the math at work here.
-    double phi(long tnow)
+    synchronized double phi(long tnow)
     {
-        assert arrivalIntervals.size() > 0 && tLast > 0; // should not be called before any samples arrive
+        assert size > 0 && tLast > 0; // should not be called before any samples arrive
         long t = tnow - tLast;
         return t / mean();
     }
 
-    public String toString()
+    public synchronized String toString()
     {
-        return StringUtils.join(arrivalIntervals.iterator(), " ");
+        StringBuilder sb = new StringBuilder();
+        int first = size == arrivalIntervals.length ? index : 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0)
+                sb.append(' ');
+            sb.append(arrivalIntervals[(first + i) % arrivalIntervals.length]);
+        }
+        return sb.toString();
     }
 }
 
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.io.sstable;
 
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -26,7 +27,9 @@ import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowPosition;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.MappedMemory;
 import org.apache.cassandra.io.util.Memory;
+import org.apache.cassandra.io.util.MemoryInputStream;
 import org.apache.cassandra.io.util.MemoryOutputStream;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
@@ -62,6 +65,8 @@ public class IndexSummary extends WrappedSharedCloseable
     // and entries containing the summary data
     private final Memory offsets;
     private final int offsetCount;
+    // the value every offset is based from: zero in memory, the size of the offsets when used in place from disk
+    private final int offsetsBase;
     // entries is a list of (partition key, index file offset) pairs
     private final Memory entries;
     private final long entriesLength;
@@ -76,12 +81,19 @@ public class IndexSummary extends WrappedSharedCloseable
 
     public IndexSummary(IPartitioner partitioner, Memory offsets, int offsetCount, Memory entries, long entriesLength,
                         int sizeAtFullSampling, int minIndexInterval, int samplingLevel)
+    {
+        this(partitioner, offsets, offsetCount, 0, entries, entriesLength, sizeAtFullSampling, minIndexInterval, samplingLevel);
+    }
+
+    private IndexSummary(IPartitioner partitioner, Memory offsets, int offsetCount, int offsetsBase, Memory entries, long entriesLength,
+                         int sizeAtFullSampling, int minIndexInterval, int samplingLevel)
     {
         super(new Memory[] { offsets, entries });
-        assert offsets.getInt(0) == 0;
+        assert offsets.getInt(0) == offsetsBase;
         this.partitioner = partitioner;
         this.minIndexInterval = minIndexInterval;
         this.offsetCount = offsetCount;
+        this.offsetsBase = offsetsBase;
         this.entriesLength = entriesLength;
         this.sizeAtFullSampling = sizeAtFullSampling;
         this.offsets = offsets;
@@ -96,6 +108,7 @@ public class IndexSummary extends WrappedSharedCloseable
         this.partitioner = copy.partitioner;
         this.minIndexInterval = copy.minIndexInterval;
         this.offsetCount = copy.offsetCount;
+        this.offsetsBase = copy.offsetsBase;
         this.entriesLength = copy.entriesLength;
         this.sizeAtFullSampling = copy.sizeAtFullSampling;
         this.offsets = copy.offsets;
@@ -140,7 +153,7 @@ public class IndexSummary extends WrappedSharedCloseable
     public int getPositionInSummary(int index)
     {
         // The first section of bytes holds a four-byte position for each entry in the summary, so just multiply by 4.
-        return offsets.getInt(index << 2);
+        return offsets.getInt(index << 2) - offsetsBase;
     }
 
     public byte[] getKey(int index)
@@ -274,7 +287,7 @@ public class IndexSummary extends WrappedSharedCloseable
             int baseOffset = t.offsetCount * 4;
             for (int i = 0 ; i < t.offsetCount ; i++)
             {
-                int offset = t.offsets.getInt(i * 4) + baseOffset;
+                int offset = t.getPositionInSummary(i) + baseOffset;
                 // our serialization format for this file uses native byte order, so if this is different to the
                 // default Java serialization order (BIG_ENDIAN) we have to reverse our bytes
                 if (ByteOrder.nativeOrder() != ByteOrder.BIG_ENDIAN)
@@ -285,6 +298,58 @@ public class IndexSummary extends WrappedSharedCloseable
         }
 
         public IndexSummary deserialize(DataInputStream in, IPartitioner partitioner, boolean haveSamplingLevel, int expectedMinIndexInterval, int maxIndexInterval) throws IOException
+        {
+            Header header = deserializeHeader(in, haveSamplingLevel, expectedMinIndexInterval, maxIndexInterval);
+            int offsetCount = header.offsetCount;
+            long offheapSize = header.offheapSize;
+            Memory offsets = Memory.allocate(offsetCount * 4);
+            Memory entries = Memory.allocate(offheapSize - offsets.size());
+            FBUtilities.copy(in, new MemoryOutputStream(offsets), offsets.size());
+            FBUtilities.copy(in, new MemoryOutputStream(entries), entries.size());
+            // our on-disk representation treats the offsets and the summary data as one contiguous structure,
+            // in which the offsets are based from the start of the structure. i.e., if the offsets occupy
+            // X bytes, the value of the first offset will be X. In memory we split the two regions up, so that
+            // the summary values are indexed from zero, so we apply a correction to the offsets when de/serializing.
+            // In this case subtracting X from each of the offsets.
+            for (int i = 0 ; i < offsets.size() ; i += 4)
+                offsets.setInt(i, (int) (offsets.getInt(i) - offsets.size()));
+            return new IndexSummary(partitioner, offsets, offsetCount, entries, entries.size(), header.fullSamplingSummarySize, header.minIndexInterval, header.samplingLevel);
+        }
+
+        /**
+         * Uses the summary in place from a memory mapped Summary.db component, rather than copying it off-heap.
+         * The summary holds its own share of the memory, and the input is left positioned after the summary.
+         *
+         * @param in an input over file, positioned at the start of the summary
+         */
+        public IndexSummary deserialize(MemoryInputStream in, MappedMemory file, IPartitioner partitioner, boolean haveSamplingLevel, int expectedMinIndexInterval, int maxIndexInterval) throws IOException
+        {
+            Header header = deserializeHeader(in, haveSamplingLevel, expectedMinIndexInterval, maxIndexInterval);
+            long offsetsStart = in.getPosition();
+            long offsetsSize = header.offsetCount * 4L;
+            if (offsetsStart + header.offheapSize > file.size())
+                throw new IOException(String.format("Index summary of %d bytes does not fit in %d", header.offheapSize, file.size()));
+
+            // the offsets are left as they are on disk, based from the start of the offsets rather than of the entries
+            MappedMemory offsets = file.region(offsetsStart, offsetsSize);
+            MappedMemory entries = null;
+            try
+            {
+                entries = file.region(offsetsStart + offsetsSize, header.offheapSize - offsetsSize);
+                in.seek(offsetsStart + header.offheapSize);
+                return new IndexSummary(partitioner, offsets, header.offsetCount, (int) offsetsSize, entries, entries.size(),
+                                        header.fullSamplingSummarySize, header.minIndexInterval, header.samplingLevel);
+            }
+            catch (RuntimeException | Error e)
+            {
+                offsets.close();
+                if (entries != null)
+                    entries.close();
+                throw e;
+            }
+        }
+
+        private Header deserializeHeader(DataInput in, boolean haveSamplingLevel, int expectedMinIndexInterval, int maxIndexInterval) throws IOException
         {
             int minIndexInterval = in.readInt();
             if (minIndexInterval != expectedMinIndexInterval)
@@ -313,19 +378,25 @@ public class IndexSummary extends WrappedSharedCloseable
                 throw new IOException(String.format("Rebuilding index summary because the effective index interval (%d) is higher than" +
                                                     " the current max index interval (%d)", effectiveIndexInterval, maxIndexInterval));
             }
+            return new Header(minIndexInterval, offsetCount, offheapSize, samplingLevel, fullSamplingSummarySize);
+        }
 
-            Memory offsets = Memory.allocate(offsetCount * 4);
-            Memory entries = Memory.allocate(offheapSize - offsets.size());
-            FBUtilities.copy(in, new MemoryOutputStream(offsets), offsets.size());
-            FBUtilities.copy(in, new MemoryOutputStream(entries), entries.size());
-            // our on-disk representation treats the offsets and the summary data as one contiguous structure,
-            // in which the offsets are based from the start of the structure. i.e., if the offsets occupy
-            // X bytes, the value of the first offset will be X. In memory we split the two regions up, so that
-            // the summary values are indexed from zero, so we apply a correction to the offsets when de/serializing.
-            // In this case subtracting X from each of the offsets.
-            for (int i = 0 ; i < offsets.size() ; i += 4)
-                offsets.setInt(i, (int) (offsets.getInt(i) - offsets.size()));
-            return new IndexSummary(partitioner, offsets, offsetCount, entries, entries.size(), fullSamplingSummarySize, minIndexInterval, samplingLevel);
+        private static final class Header
+        {
+            final int minIndexInterval;
+            final int offsetCount;
+            final long offheapSize;
+            final int samplingLevel;
+            final int fullSamplingSummarySize;
+
+            Header(int minIndexInterval, int offsetCount, long offheapSize, int samplingLevel, int fullSamplingSummarySize)
+            {
+                this.minIndexInterval = minIndexInterval;
+                this.offsetCount = offsetCount;
+                this.offheapSize = offheapSize;
+                this.samplingLevel = samplingLevel;
+                this.fullSamplingSummarySize = fullSamplingSummarySize;
+            }
         }
     }
 }
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.io.util.MappedSegments;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.concurrent.SharedCloseable;
+
+/**
+ * An on-disk, byte-ordered trie over the partition keys of an sstable, mapping each key to the position of its
+ * entry in the primary index. It is searched in place from a memory mapped Partitions.db, so unlike the index
+ * summary nothing is deserialized and a lookup costs one walk down the trie and a single primary index entry read.
+ *
+ * Keys are stored by the shortest prefix that tells them apart from the previous key, so a lookup only finds the
+ * entry that the key is in if present; the caller still compares the key in the primary index.
+ *
+ * Each node is written after its children, as a header byte holding the width of its payload (its primary index
+ * position, or 0 if no key ends here) in the low four bits and the width of its child pointers (0 for a leaf) in
+ * the high four, then the number of children less one, the payload, the sorted transition bytes and the distance
+ * back to each child. The file ends with the position of the root, or -1 for an empty sstable.
+ *
+ * Only partitioners whose keys can be ordered as bytes are supported; other sstables keep using their summary.
+ */
+public class PartitionIndex implements SharedCloseable
+{
+    static final int TRAILER_SIZE = 8;
+
+    private final MappedSegments memory;
+    private final long root;
+
+    private PartitionIndex(MappedSegments memory, long root)
+    {
+        this.memory = memory;
+        this.root = root;
+    }
+
+    public static boolean isSupported(IPartitioner partitioner)
+    {
+        return partitioner instanceof Murmur3Partitioner
+               || partitioner instanceof RandomPartitioner
+               || partitioner instanceof ByteOrderedPartitioner;
+    }
+
+    /**
+     * @return the partition index in the given file
+     * @throws CorruptSSTableException if the file is too short or doesn't end with a valid root
+     */
+    public static PartitionIndex open(File file)
+    {
+        return open(file, MappedSegments.DEFAULT_SEGMENT_SHIFT);
+    }
+
+    @VisibleForTesting
+    static PartitionIndex open(File file, int segmentShift)
+    {
+        if (file.length() < TRAILER_SIZE)
+            throw new CorruptSSTableException(new IllegalStateException("Truncated partition index of " + file.length() + " bytes"), file);
+
+        MappedSegments memory = MappedSegments.map(file, segmentShift);
+        long root = read(memory, memory.size() - TRAILER_SIZE, TRAILER_SIZE);
+        if (root < -1 || root >= memory.size() - TRAILER_SIZE)
+        {
+            memory.close();
+            throw new CorruptSSTableException(new IllegalStateException("Invalid partition index root " + root), file);
+        }
+        return new PartitionIndex(memory, root);
+    }
+
+    /**
+     * @return the bytes of the position in ring order: the token, then the key for a partition key. A token bound
+     * is encoded as its token alone, which sorts before all of the keys of that token.
+     */
+    static byte[] keyBytes(RowPosition position)
+    {
+        Object token = position.getToken().getTokenValue();
+        // a byte ordered token is the key itself
+        if (token instanceof byte[])
+            return (byte[]) token;
+
+        byte[] tokenBytes;
+        if (token instanceof Long)
+        {
+            long value = (Long) token ^ Long.MIN_VALUE;
+            tokenBytes = new byte[8];
+            for (int i = 7; i >= 0; i--, value >>>= 8)
+                tokenBytes[i] = (byte) value;
+        }
+        else
+        {
+            // RandomPartitioner tokens are in [0, 2^127], with -1 as the minimum token
+            BigInteger value = (BigInteger) token;
+            if (value.signum() < 0)
+            {
+                tokenBytes = new byte[0];
+            }
+            else
+            {
+                byte[] magnitude = value.toByteArray();
+                int length = Math.min(16, magnitude.length);
+                tokenBytes = new byte[16];
+                System.arraycopy(magnitude, magnitude.length - length, tokenBytes, 16 - length, length);
+            }
+        }
+
+        if (!(position instanceof DecoratedKey))
+            return tokenBytes;
+
+        ByteBuffer key = ((DecoratedKey) position).getKey();
+        byte[] bytes = new byte[tokenBytes.length + key.remaining()];
+        System.arraycopy(tokenBytes, 0, bytes, 0, tokenBytes.length);
+        ByteBufferUtil.arrayCopy(key, key.position(), bytes, tokenBytes.length, key.remaining());
+        return bytes;
+    }
+
+    /**
+     * @return the primary index position of the last key whose stored prefix sorts before or is a prefix of the
+     * given position, or -1 if there is none. All keys before that entry sort before the position, and the first
+     * key not less than it is either that entry or the next one.
+     */
+    public long floor(RowPosition position)
+    {
+        if (root < 0)
+            return -1;
+
+        byte[] key = keyBytes(position);
+        long node = root;
+        long payload = -1;
+        // the subtree holding the greatest keys less than the path walked so far, only descended once we're done
+        long lesser = -1;
+        for (int depth = 0; ; depth++)
+        {
+            int header = memory.getByte(node) & 0xFF;
+            int payloadBytes = header & 0xF;
+            int pointerBytes = header >>> 4;
+            int children = pointerBytes == 0 ? 0 : (memory.getByte(node + 1) & 0xFF) + 1;
+            long payloadPosition = node + (pointerBytes == 0 ? 1 : 2);
+            if (payloadBytes > 0)
+            {
+                payload = read(memory, payloadPosition, payloadBytes);
+                lesser = -1;
+            }
+            if (depth == key.length || children == 0)
+                break;
+
+            long transitions = payloadPosition + payloadBytes;
+            int index = search(transitions, children, key[depth] & 0xFF);
+            int lower = index >= 0 ? index - 1 : -index - 2;
+            if (lower >= 0)
+                lesser = child(node, transitions, children, pointerBytes, lower);
+            if (index < 0)
+                break;
+            node = child(node, transitions, children, pointerBytes, index);
+        }
+        return lesser >= 0 ? last(lesser) : payload;
+    }
+
+    private long last(long node)
+    {
+        while (true)
+        {
+            int header = memory.getByte(node) & 0xFF;
+            int payloadBytes = header & 0xF;
+            int pointerBytes = header >>> 4;
+            long payloadPosition = node + (pointerBytes == 0 ? 1 : 2);
+            if (pointerBytes == 0)
+                return read(memory, payloadPosition, payloadBytes);
+
+            int children = (memory.getByte(node + 1) & 0xFF) + 1;
+            node = child(node, payloadPosition + payloadBytes, children, pointerBytes, children - 1);
+        }
+    }
+
+    private int search(long transitions, int children, int transition)
+    {
+        int low = 0, high = children - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = (memory.getByte(transitions + mid) & 0xFF) - transition;
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -(low + 1);
+    }
+
+    private long child(long node, long transitions, int children, int pointerBytes, int index)
+    {
+        return node - read(memory, transitions + children + (long) index * pointerBytes, pointerBytes);
+    }
+
+    private static long read(MappedSegments memory, long position, int bytes)
+    {
+        long value = 0;
+        for (int i = 0; i < bytes; i++)
+            value = (value << 8) | (memory.getByte(position + i) & 0xFF);
+        return value;
+    }
+
+    public PartitionIndex sharedCopy()
+    {
+        return new PartitionIndex(memory.sharedCopy(), root);
+    }
+
+    public void close()
+    {
+        memory.close();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.SequentialWriter;
+
+/**
+ * Writes the {@link PartitionIndex} of an sstable as its keys are appended in order. Only the nodes on the path
+ * of the last key are held in memory; the others are complete as soon as a key leaves their subtree, and are
+ * written out then.
+ */
+public class PartitionIndexBuilder
+{
+    private final SequentialWriter file;
+    // the nodes on the path to the last key added, the root first
+    private final List<Node> path = new ArrayList<>();
+    private byte[] lastKey;
+
+    public PartitionIndexBuilder(File file)
+    {
+        this.file = SequentialWriter.open(file);
+        path.add(new Node(0));
+    }
+
+    /**
+     * @param key a key greater than all of those added before
+     * @param indexPosition the position of its entry in the primary index
+     */
+    public void add(DecoratedKey key, long indexPosition)
+    {
+        byte[] bytes = PartitionIndex.keyBytes(key);
+        int common = lastKey == null ? 0 : commonPrefix(lastKey, bytes);
+        assert lastKey == null || common < bytes.length : "Keys must be added in order";
+        int prefixLength = Math.min(bytes.length, common + 1);
+
+        try
+        {
+            while (path.size() > common + 1)
+                pop();
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, file.getPath());
+        }
+        while (path.size() <= prefixLength)
+            path.add(new Node(bytes[path.size() - 1] & 0xFF));
+        path.get(path.size() - 1).payload = indexPosition;
+        lastKey = bytes;
+    }
+
+    private static int commonPrefix(byte[] a, byte[] b)
+    {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++)
+            if (a[i] != b[i])
+                return i;
+        return length;
+    }
+
+    // writes the last node of the path and links it from its parent
+    private void pop() throws IOException
+    {
+        Node node = path.remove(path.size() - 1);
+        long position = node.write(file.stream, file.getFilePointer());
+        path.get(path.size() - 1).addChild(node.transition, position);
+    }
+
+    /**
+     * Writes the nodes still held and syncs the file.
+     */
+    public void complete()
+    {
+        try
+        {
+            while (path.size() > 1)
+                pop();
+            Node root = path.remove(0);
+            long rootPosition = root.payload < 0 && root.count == 0 ? -1 : root.write(file.stream, file.getFilePointer());
+            file.stream.writeLong(rootPosition);
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, file.getPath());
+        }
+        file.close();
+    }
+
+    public void abort()
+    {
+        file.abort();
+    }
+
+    private static int bytesFor(long value)
+    {
+        return Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 7) / 8);
+    }
+
+    private static void writeBytes(DataOutputPlus out, long value, int bytes) throws IOException
+    {
+        for (int i = bytes - 1; i >= 0; i--)
+            out.writeByte((int) (value >>> (i * 8)));
+    }
+
+    private static final class Node
+    {
+        final int transition;
+        long payload = -1;
+        int count;
+        int[] transitions = new int[1];
+        long[] children = new long[1];
+
+        Node(int transition)
+        {
+            this.transition = transition;
+        }
+
+        void addChild(int transition, long position)
+        {
+            if (count == children.length)
+            {
+                transitions = Arrays.copyOf(transitions, count * 2);
+                children = Arrays.copyOf(children, count * 2);
+            }
+            transitions[count] = transition;
+            children[count++] = position;
+        }
+
+        long write(DataOutputPlus out, long position) throws IOException
+        {
+            assert count > 0 || payload >= 0;
+            int payloadBytes = payload < 0 ? 0 : bytesFor(payload);
+            // children are all written before their parent, the first furthest back
+            int pointerBytes = count == 0 ? 0 : bytesFor(position - children[0]);
+            out.writeByte(pointerBytes << 4 | payloadBytes);
+            if (count > 0)
+                out.writeByte(count - 1);
+            if (payloadBytes > 0)
+                writeBytes(out, payload, payloadBytes);
+            for (int i = 0; i < count; i++)
+                out.writeByte(transitions[i]);
+            for (int i = 0; i < count; i++)
+                writeBytes(out, position - children[i], pointerBytes);
+            return position;
+        }
+    }
+}
@@ -91,6 +91,7 @@ public class SSTableRewriter
     // into discard, so that abort can cleanup after us safely
     private final List<SSTableReader> discard = new ArrayList<>();
     private final boolean isOffline; // true for operations that are performed without Cassandra running (prevents updates of DataTracker)
+    private final boolean openEarly; // false when other rewriters write to the same readers concurrently, so starts cannot be moved
 
     private SSTableWriter writer;
     private Map<DecoratedKey, RowIndexEntry> cachedKeys = new HashMap<>();
@@ -102,6 +103,11 @@ public class SSTableRewriter
     }
 
     public SSTableRewriter(ColumnFamilyStore cfs, Set<SSTableReader> rewriting, long maxAge, boolean isOffline)
+    {
+        this(cfs, rewriting, maxAge, isOffline, true);
+    }
+
+    public SSTableRewriter(ColumnFamilyStore cfs, Set<SSTableReader> rewriting, long maxAge, boolean isOffline, boolean openEarly)
     {
         this.rewriting = rewriting;
         for (SSTableReader sstable : rewriting)
@@ -113,6 +119,12 @@ public class SSTableRewriter
         this.cfs = cfs;
         this.maxAge = maxAge;
         this.isOffline = isOffline;
+        this.openEarly = openEarly;
+    }
+
+    private long openInterval()
+    {
+        return openEarly ? preemptiveOpenInterval : Long.MAX_VALUE;
     }
 
     public SSTableWriter currentWriter()
@@ -166,7 +178,7 @@ public class SSTableRewriter
 
     private void maybeReopenEarly(DecoratedKey key)
     {
-        if (writer.getFilePointer() - currentlyOpenedEarlyAt > preemptiveOpenInterval)
+        if (writer.getFilePointer() - currentlyOpenedEarlyAt > openInterval())
         {
             if (isOffline)
             {
@@ -285,7 +297,7 @@ public class SSTableRewriter
     {
         if (isOffline)
             return;
-        if (preemptiveOpenInterval == Long.MAX_VALUE)
+        if (openInterval() == Long.MAX_VALUE)
             return;
 
         List<SSTableReader> toReplace = new ArrayList<>();
@@ -378,7 +390,7 @@ public class SSTableRewriter
         if (writer.getFilePointer() != 0)
         {
             // If early re-open is disabled, simply finalize the writer and store it
-            if (preemptiveOpenInterval == Long.MAX_VALUE)
+            if (openInterval() == Long.MAX_VALUE)
             {
                 SSTableReader reader = writer.finish(SSTableWriter.FinishType.NORMAL, maxAge, -1);
                 finishedReaders.add(reader);
@@ -447,7 +459,7 @@ public class SSTableRewriter
             throw new RuntimeException("exception thrown early in finish, for testing");
 
         // No early open to finalize and replace
-        if (preemptiveOpenInterval == Long.MAX_VALUE)
+        if (openInterval() == Long.MAX_VALUE)
         {
             replaceWithFinishedReaders(finishedReaders);
             if (throwLate)
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.SortedSet;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.io.util.MappedSegments;
+import org.apache.cassandra.utils.concurrent.SharedCloseable;
+
+/**
+ * An on-disk dictionary of the values of an indexed column in an sstable, mapping each value to the partitions
+ * holding it. It is searched in place from a memory mapped file, by binary search over the sorted terms, for a
+ * single value or a range of values; for types compared as bytes, a range also serves to look up a prefix.
+ *
+ * The file starts with the name of the indexed column, then holds each term with its short length, the number of
+ * partitions holding it and their keys, in term order and with the keys in ring order. Then come the position of
+ * each term and a trailer with the position of those and the number of terms.
+ *
+ * The keys found are only candidates: a value can have been overwritten or deleted in a newer sstable, so the
+ * caller still reads the partition to check it.
+ */
+public class TermIndex implements SharedCloseable
+{
+    static final int TRAILER_SIZE = 12;
+
+    private final MappedSegments memory;
+    private final AbstractType<?> termType;
+    private final IPartitioner partitioner;
+    private final long offsetsPosition;
+    private final int count;
+
+    private TermIndex(MappedSegments memory, AbstractType<?> termType, IPartitioner partitioner, long offsetsPosition, int count)
+    {
+        this.memory = memory;
+        this.termType = termType;
+        this.partitioner = partitioner;
+        this.offsetsPosition = offsetsPosition;
+        this.count = count;
+    }
+
+    /**
+     * @return the term index in the given file
+     * @throws CorruptSSTableException if the file is too short or doesn't end with a valid trailer
+     */
+    public static TermIndex open(File file, AbstractType<?> termType, IPartitioner partitioner)
+    {
+        if (file.length() < TRAILER_SIZE + 2)
+            throw new CorruptSSTableException(new IllegalStateException("Truncated term index of " + file.length() + " bytes"), file);
+
+        MappedSegments memory = MappedSegments.map(file);
+        long offsetsPosition = read(memory, memory.size() - TRAILER_SIZE, 8);
+        long count = read(memory, memory.size() - 4, 4);
+        if (offsetsPosition < 2 || offsetsPosition + count * 8 != memory.size() - TRAILER_SIZE)
+        {
+            memory.close();
+            throw new CorruptSSTableException(new IllegalStateException("Invalid term index trailer"), file);
+        }
+        return new TermIndex(memory, termType, partitioner, offsetsPosition, (int) count);
+    }
+
+    /**
+     * @return the name of the column whose values are indexed
+     */
+    public ByteBuffer columnName()
+    {
+        return readBytes(2, (int) read(memory, 0, 2));
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Adds the partitions within the key range holding a term within the bounds to the given set.
+     *
+     * @param start the least term to return, or null for no lower bound
+     * @param end the greatest term to return, or null for no upper bound
+     */
+    public void keysBetween(ByteBuffer start, boolean startInclusive, ByteBuffer end, boolean endInclusive,
+                            AbstractBounds<RowPosition> range, SortedSet<DecoratedKey> keys)
+    {
+        for (int i = start == null ? 0 : search(start, startInclusive); i < count; i++)
+        {
+            long position = termPosition(i);
+            ByteBuffer term = readTerm(position);
+            if (end != null)
+            {
+                int cmp = termType.compare(term, end);
+                if (cmp > 0 || (cmp == 0 && !endInclusive))
+                    break;
+            }
+            readKeys(position + 2 + term.remaining(), range, keys);
+        }
+    }
+
+    // the index of the first term greater than (or equal to, if inclusive) the given one
+    private int search(ByteBuffer term, boolean inclusive)
+    {
+        int low = 0, high = count - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = termType.compare(readTerm(termPosition(mid)), term);
+            if (cmp < 0 || (cmp == 0 && !inclusive))
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    private long termPosition(int index)
+    {
+        return read(memory, offsetsPosition + index * 8L, 8);
+    }
+
+    private ByteBuffer readTerm(long position)
+    {
+        return readBytes(position + 2, (int) read(memory, position, 2));
+    }
+
+    private void readKeys(long position, AbstractBounds<RowPosition> range, SortedSet<DecoratedKey> keys)
+    {
+        int keyCount = (int) read(memory, position, 4);
+        position += 4;
+        for (int i = 0; i < keyCount; i++)
+        {
+            int length = (int) read(memory, position, 2);
+            DecoratedKey key = partitioner.decorateKey(readBytes(position + 2, length));
+            if (range.contains(key))
+                keys.add(key);
+            position += 2 + length;
+        }
+    }
+
+    private ByteBuffer readBytes(long position, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = memory.getByte(position + i);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static long read(MappedSegments memory, long position, int bytes)
+    {
+        long value = 0;
+        for (int i = 0; i < bytes; i++)
+            value = (value << 8) | (memory.getByte(position + i) & 0xFF);
+        return value;
+    }
+
+    public TermIndex sharedCopy()
+    {
+        return new TermIndex(memory.sharedCopy(), termType, partitioner, offsetsPosition, count);
+    }
+
+    public void close()
+    {
+        memory.close();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.IndexType;
+import org.apache.cassandra.db.Cell;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.OnDiskAtom;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.index.SecondaryIndex;
+import org.apache.cassandra.db.index.terms.TermsIndex;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * Collects the values of an indexed column as the partitions of an sstable are written, and writes them out as a
+ * {@link TermIndex} once the sstable is complete. The terms are sorted in memory, so this holds each distinct value
+ * and the key of each partition holding one until the sstable is complete.
+ */
+public class TermIndexBuilder implements SSTableFlushObserver
+{
+    private final File file;
+    private final ByteBuffer columnName;
+    private final CellNameType comparator;
+    private final CellName indexedName;
+    private final TreeMap<ByteBuffer, List<ByteBuffer>> terms;
+
+    private DecoratedKey partition;
+    // the key of the current partition, copied once it holds a term
+    private ByteBuffer partitionKey;
+
+    /**
+     * @return the columns of the table with a {@link TermsIndex}, whose values each of its sstables indexes
+     */
+    public static Collection<ColumnDefinition> indexedColumns(CFMetaData metadata)
+    {
+        List<ColumnDefinition> columns = new ArrayList<>();
+        for (ColumnDefinition column : metadata.allColumns())
+        {
+            if (column.getIndexType() == IndexType.CUSTOM
+                && TermsIndex.class.getName().equals(column.getIndexOptions().get(SecondaryIndex.CUSTOM_INDEX_OPTION_NAME)))
+                columns.add(column);
+        }
+        return columns;
+    }
+
+    public static Component componentFor(ColumnDefinition column)
+    {
+        return new Component(Component.Type.CUSTOM, "SI_" + column.getIndexName() + ".db");
+    }
+
+    /**
+     * @param column a regular column of a table without clustering columns
+     */
+    public TermIndexBuilder(File file, CFMetaData metadata, ColumnDefinition column)
+    {
+        this(file, column.name.bytes, metadata.comparator, metadata.comparator.create(Composites.EMPTY, column), column.type);
+    }
+
+    @VisibleForTesting
+    TermIndexBuilder(File file, ByteBuffer columnName, CellNameType comparator, CellName indexedName, AbstractType<?> termType)
+    {
+        this.file = file;
+        this.columnName = columnName;
+        this.comparator = comparator;
+        this.indexedName = indexedName;
+        this.terms = new TreeMap<>(termType);
+    }
+
+    public void startPartition(DecoratedKey key)
+    {
+        partition = key;
+        partitionKey = null;
+    }
+
+    public void nextAtom(OnDiskAtom atom)
+    {
+        if (!(atom instanceof Cell))
+            return;
+
+        Cell cell = (Cell) atom;
+        if (cell.isLive() && comparator.compare(cell.name(), indexedName) == 0)
+            add(cell.value());
+    }
+
+    private void add(ByteBuffer term)
+    {
+        List<ByteBuffer> keys = terms.get(term);
+        if (keys == null)
+        {
+            keys = new ArrayList<>(1);
+            terms.put(ByteBufferUtil.clone(term), keys);
+        }
+        else if (partitionKey != null && keys.get(keys.size() - 1) == partitionKey)
+        {
+            return;
+        }
+
+        if (partitionKey == null)
+            partitionKey = ByteBufferUtil.clone(partition.getKey());
+        keys.add(partitionKey);
+    }
+
+    /**
+     * Writes the terms and syncs the file.
+     */
+    public void complete()
+    {
+        SequentialWriter writer = SequentialWriter.open(file);
+        try
+        {
+            ByteBufferUtil.writeWithShortLength(columnName, writer.stream);
+            long[] offsets = new long[terms.size()];
+            int i = 0;
+            for (Map.Entry<ByteBuffer, List<ByteBuffer>> entry : terms.entrySet())
+            {
+                offsets[i++] = writer.getFilePointer();
+                ByteBufferUtil.writeWithShortLength(entry.getKey(), writer.stream);
+                writer.stream.writeInt(entry.getValue().size());
+                for (ByteBuffer key : entry.getValue())
+                    ByteBufferUtil.writeWithShortLength(key, writer.stream);
+            }
+
+            long offsetsPosition = writer.getFilePointer();
+            for (long offset : offsets)
+                writer.stream.writeLong(offset);
+            writer.stream.writeLong(offsetsPosition);
+            writer.stream.writeInt(offsets.length);
+        }
+        catch (IOException e)
+        {
+            writer.abort();
+            throw new FSWriteError(e, file);
+        }
+        writer.close();
+        terms.clear();
+    }
+
+    public void abort()
+    {
+        terms.clear();
+        FileUtils.delete(file);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.util.DataOutputPlus;
+
+/**
+ * A bitmap of the equal-sized buckets of the token ring that hold at least one partition of an sstable.
+ *
+ * Bloom filters only answer point lookups, and the first and last keys of an sstable say nothing about how its
+ * partitions are spread between them, so this lets range reads and compactions skip sstables with nothing in a
+ * range even though the range falls between their first and last keys. A clear bucket means no partition; a set
+ * one only that there may be some.
+ *
+ * Only the tokens of the hashing partitioners spread evenly over the ring; for other partitioners no coverage is kept.
+ */
+public class TokenCoverage
+{
+    public static final TokenCoverageSerializer serializer = new TokenCoverageSerializer();
+
+    static final int MIN_BUCKET_BITS = 10;
+    static final int MAX_BUCKET_BITS = 16;
+    // buckets per expected partition, so that sparse sstables leave most buckets clear
+    private static final int BUCKETS_PER_KEY_BITS = 4;
+
+    private final int bucketBits;
+    private final long[] words;
+
+    private TokenCoverage(int bucketBits, long[] words)
+    {
+        assert words.length == Math.max(1, (1 << bucketBits) >>> 6);
+        this.bucketBits = bucketBits;
+        this.words = words;
+    }
+
+    public static boolean isSupported(IPartitioner partitioner)
+    {
+        return partitioner instanceof Murmur3Partitioner || partitioner instanceof RandomPartitioner;
+    }
+
+    /**
+     * @return the number of bits of ring position used to pick a bucket for an sstable of the given number of keys
+     */
+    static int bucketBitsFor(long estimatedKeys)
+    {
+        int keyBits = 64 - Long.numberOfLeadingZeros(Math.max(1, estimatedKeys) - 1);
+        return Math.max(MIN_BUCKET_BITS, Math.min(MAX_BUCKET_BITS, keyBits + BUCKETS_PER_KEY_BITS));
+    }
+
+    /**
+     * @return the position of the token on the ring, as an unsigned fraction of 2^64
+     */
+    static long ringPosition(Token token)
+    {
+        Object value = token.getTokenValue();
+        if (value instanceof Long)
+            return (Long) value ^ Long.MIN_VALUE;
+
+        // RandomPartitioner tokens are in [0, 2^127], with -1 as the minimum token
+        BigInteger bigValue = (BigInteger) value;
+        if (bigValue.signum() < 0)
+            return 0;
+        BigInteger position = bigValue.shiftRight(63);
+        return position.bitLength() > 64 ? -1L : position.longValue();
+    }
+
+    public int bucketCount()
+    {
+        return 1 << bucketBits;
+    }
+
+    private int bucketOf(Token token)
+    {
+        return (int) (ringPosition(token) >>> (64 - bucketBits));
+    }
+
+    private boolean isSet(int bucket)
+    {
+        return (words[bucket >>> 6] & (1L << bucket)) != 0;
+    }
+
+    /**
+     * @return true if any of the buckets from first to last, both inclusive, is set
+     */
+    private boolean anySet(int first, int last)
+    {
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord)
+            return (words[firstWord] & firstMask & lastMask) != 0;
+
+        if ((words[firstWord] & firstMask) != 0 || (words[lastWord] & lastMask) != 0)
+            return true;
+        for (int i = firstWord + 1; i < lastWord; i++)
+        {
+            if (words[i] != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if no partition of the sstable falls within the given bounds, true if some may
+     */
+    public boolean intersects(AbstractBounds<RowPosition> bounds)
+    {
+        int first = bucketOf(bounds.left.getToken());
+        Token right = bounds.right.getToken();
+        if (right.isMinimum())
+            return anySet(first, bucketCount() - 1);
+
+        int last = bucketOf(right);
+        if (bounds instanceof Range && Range.isWrapAround(bounds.left, bounds.right))
+            return anySet(first, bucketCount() - 1) || anySet(0, last);
+        return first <= last ? anySet(first, last) : anySet(last, first);
+    }
+
+    /**
+     * @return false if this and the other sstable have no bucket in common, meaning they cannot share any partition
+     */
+    public boolean intersects(TokenCoverage other)
+    {
+        int bits = Math.min(bucketBits, other.bucketBits);
+        long[] mine = downsample(bits);
+        long[] theirs = other.downsample(bits);
+        for (int i = 0; i < mine.length; i++)
+        {
+            if ((mine[i] & theirs[i]) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the buckets at the coarser resolution of the given number of bits, each set if any of the finer
+     * buckets it spans is
+     */
+    private long[] downsample(int bits)
+    {
+        if (bits == bucketBits)
+            return words;
+
+        int shift = bucketBits - bits;
+        long[] result = new long[Math.max(1, (1 << bits) >>> 6)];
+        for (int i = 0; i < words.length; i++)
+        {
+            long word = words[i];
+            while (word != 0)
+            {
+                int bucket = ((i << 6) + Long.numberOfTrailingZeros(word)) >>> shift;
+                result[bucket >>> 6] |= 1L << bucket;
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the coverage of all the given sstables together, at the coarsest resolution amongst them
+     */
+    public static TokenCoverage merge(Iterable<TokenCoverage> coverages)
+    {
+        int bits = MAX_BUCKET_BITS;
+        for (TokenCoverage coverage : coverages)
+            bits = Math.min(bits, coverage.bucketBits);
+
+        long[] words = new long[Math.max(1, (1 << bits) >>> 6)];
+        for (TokenCoverage coverage : coverages)
+        {
+            long[] downsampled = coverage.downsample(bits);
+            for (int i = 0; i < words.length; i++)
+                words[i] |= downsampled[i];
+        }
+        return new TokenCoverage(bits, words);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof TokenCoverage))
+            return false;
+        TokenCoverage that = (TokenCoverage) o;
+        return bucketBits == that.bucketBits && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * bucketBits + Arrays.hashCode(words);
+    }
+
+    public static class Builder
+    {
+        private final int bucketBits;
+        private final long[] words;
+
+        public Builder(long estimatedKeys)
+        {
+            bucketBits = bucketBitsFor(estimatedKeys);
+            words = new long[Math.max(1, (1 << bucketBits) >>> 6)];
+        }
+
+        public void add(Token token)
+        {
+            int bucket = (int) (ringPosition(token) >>> (64 - bucketBits));
+            words[bucket >>> 6] |= 1L << bucket;
+        }
+
+        /**
+         * @return the coverage of the tokens added so far; the builder can keep being added to
+         */
+        public TokenCoverage build()
+        {
+            return new TokenCoverage(bucketBits, words.clone());
+        }
+    }
+
+    public static class TokenCoverageSerializer
+    {
+        public void serialize(TokenCoverage coverage, DataOutputPlus out) throws IOException
+        {
+            out.writeByte(coverage.bucketBits);
+            for (long word : coverage.words)
+                out.writeLong(word);
+        }
+
+        public TokenCoverage deserialize(DataInput in) throws IOException
+        {
+            int bucketBits = in.readByte();
+            if (bucketBits < MIN_BUCKET_BITS || bucketBits > MAX_BUCKET_BITS)
+                throw new IOException("Invalid token coverage resolution " + bucketBits);
+            long[] words = new long[Math.max(1, (1 << bucketBits) >>> 6)];
+            for (int i = 0; i < words.length; i++)
+                words[i] = in.readLong();
+            return new TokenCoverage(bucketBits, words);
+        }
+    }
+}
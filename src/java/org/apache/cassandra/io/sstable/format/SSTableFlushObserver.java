@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable.format;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.OnDiskAtom;
+
+/**
+ * Builds a component of an sstable from the partitions written to it, whether by a flush, a compaction or a stream.
+ */
+public interface SSTableFlushObserver
+{
+    /**
+     * Called before the atoms of each partition are written, in sstable order.
+     */
+    public void startPartition(DecoratedKey key);
+
+    /**
+     * Called for each atom written to the current partition.
+     */
+    public void nextAtom(OnDiskAtom atom);
+
+    /**
+     * Writes out the component once all of the partitions have been written.
+     */
+    public void complete();
+
+    /**
+     * Discards the component of an sstable that failed to be written.
+     */
+    public void abort();
+}
@@ -27,6 +27,7 @@ import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
 import org.apache.cassandra.db.compaction.CompactionController;
 import org.apache.cassandra.io.sstable.format.big.BigFormat;
+import org.apache.cassandra.io.sstable.format.trie.TrieFormat;
 import org.apache.cassandra.io.util.FileDataInput;
 
 import java.util.Iterator;
@@ -58,7 +59,10 @@ public interface SSTableFormat
         LEGACY("big", BigFormat.instance),
 
         //The original sstable format
-        BIG("big", BigFormat.instance);
+        BIG("big", BigFormat.instance),
+
+        //The original format with a trie partition index
+        TRIE("trie", TrieFormat.instance);
 
         public final SSTableFormat info;
         public final String name;
@@ -181,6 +181,10 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
     protected SegmentedFile dfile;
     protected IndexSummary indexSummary;
     protected IFilter bf;
+    // buckets of the token ring holding partitions of this sstable, or null if unknown
+    protected TokenCoverage tokenCoverage;
+    // trie of the partition keys pointing into the primary index, or null if lookups go through the index summary
+    protected PartitionIndex partitionIndex;
 
     protected final RowIndexEntry.IndexSerializer rowIndexEntrySerializer;
 
@@ -437,6 +441,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         // load index and filter
         long start = System.nanoTime();
         sstable.load(validationMetadata);
+        sstable.loadTokenCoverage();
+        sstable.loadPartitionIndex();
         logger.debug("INDEX LOAD TIME for {}: {} ms.", descriptor, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
         sstable.setup(!validate);
@@ -480,6 +486,12 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                         logger.error("Corrupt sstable {}; skipped", entry, ex);
                         return;
                     }
+                    catch (CorruptSSTableException ex)
+                    {
+                        FileUtils.handleCorruptSSTable(ex);
+                        logger.error("Corrupt sstable {}; skipped", entry, ex);
+                        return;
+                    }
                     sstables.add(sstable);
                 }
             };
@@ -511,6 +523,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                                       SegmentedFile dfile,
                                       IndexSummary isummary,
                                       IFilter bf,
+                                      TokenCoverage tokenCoverage,
+                                      PartitionIndex partitionIndex,
                                       long maxDataAge,
                                       StatsMetadata sstableMetadata,
                                       OpenReason openReason)
@@ -520,6 +534,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         SSTableReader reader = internalOpen(desc, components, metadata, partitioner, maxDataAge, sstableMetadata, openReason);
 
         reader.bf = bf;
+        reader.tokenCoverage = tokenCoverage;
+        reader.partitionIndex = partitionIndex;
         reader.ifile = ifile;
         reader.dfile = dfile;
         reader.indexSummary = isummary;
@@ -636,6 +652,13 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
      */
     private void loadBloomFilter() throws IOException
     {
+        File filterFile = new File(descriptor.filenameFor(Component.FILTER));
+        if (canMap(filterFile))
+        {
+            bf = FilterFactory.deserialize(MappedMemory.map(filterFile));
+            return;
+        }
+
         DataInputStream stream = null;
         try
         {
@@ -648,6 +671,53 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         }
     }
 
+    /**
+     * Load the token coverage from Coverage.db, if the sstable has one. A missing or unreadable coverage only
+     * means this sstable can't be skipped by range.
+     */
+    private void loadTokenCoverage()
+    {
+        if (!components.contains(Component.TOKEN_COVERAGE))
+            return;
+
+        String path = descriptor.filenameFor(Component.TOKEN_COVERAGE);
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(path))))
+        {
+            tokenCoverage = TokenCoverage.serializer.deserialize(stream);
+        }
+        catch (IOException e)
+        {
+            logger.debug("Cannot deserialize token coverage {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Map the partition index from Partitions.db, if the sstable has one. Without it, partitions are looked up
+     * through the index summary. The summary of an sstable with a partition index is sampled too sparsely to
+     * stand in for it, so a corrupt partition index makes the whole sstable corrupt.
+     */
+    private void loadPartitionIndex()
+    {
+        if (components.contains(Component.PARTITION_INDEX))
+            partitionIndex = PartitionIndex.open(new File(descriptor.filenameFor(Component.PARTITION_INDEX)));
+    }
+
+    private PartitionIndex sharedPartitionIndex()
+    {
+        return partitionIndex == null ? null : partitionIndex.sharedCopy();
+    }
+
+    /**
+     * @return the sampling level to build a missing index summary at; sstables with a partition index only use theirs
+     * for estimates
+     */
+    private int initialSamplingLevel()
+    {
+        return components.contains(Component.PARTITION_INDEX)
+             ? IndexSummaryBuilder.minSamplingLevel(metadata.getMinIndexInterval(), metadata.getMaxIndexInterval())
+             : Downsampling.BASE_SAMPLING_LEVEL;
+    }
+
     /**
      * Loads ifile, dfile and indexSummary, and optionally recreates the bloom filter.
      * @param saveSummaryIfCreated for bulk loading purposes, if the summary was absent and needed to be built, you can
@@ -662,7 +732,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             boolean builtSummary = false;
             if (recreateBloomFilter || !summaryLoaded)
             {
-                buildSummary(recreateBloomFilter, ibuilder, dbuilder, summaryLoaded, Downsampling.BASE_SAMPLING_LEVEL);
+                buildSummary(recreateBloomFilter, ibuilder, dbuilder, summaryLoaded, initialSamplingLevel());
                 builtSummary = true;
             }
 
@@ -719,7 +789,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                     : estimateRowsFromIndex(primaryIndex); // statistics is supposed to be optional
 
             if (recreateBloomFilter)
-                bf = FilterFactory.getFilter(estimatedKeys, metadata.getBloomFilterFpChance(), true);
+                bf = FilterFactory.getFilter(estimatedKeys, metadata.getBloomFilterFpChance(), true, DatabaseDescriptor.useBlockedBloomFilters());
 
             try (IndexSummaryBuilder summaryBuilder = summaryLoaded ? null : new IndexSummaryBuilder(estimatedKeys, metadata.getMinIndexInterval(), samplingLevel))
             {
@@ -777,16 +847,31 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             return false;
 
         DataInputStream iStream = null;
+        MappedMemory mapped = null;
         try
         {
-            iStream = new DataInputStream(new FileInputStream(summariesFile));
-            indexSummary = IndexSummary.serializer.deserialize(
-                    iStream, partitioner, descriptor.version.hasSamplingLevel(),
-                    metadata.getMinIndexInterval(), metadata.getMaxIndexInterval());
-            first = partitioner.decorateKey(ByteBufferUtil.readWithLength(iStream));
-            last = partitioner.decorateKey(ByteBufferUtil.readWithLength(iStream));
-            ibuilder.deserializeBounds(iStream);
-            dbuilder.deserializeBounds(iStream);
+            DataInput in;
+            if (canMap(summariesFile))
+            {
+                mapped = MappedMemory.map(summariesFile);
+                MemoryInputStream mappedStream = new MemoryInputStream(mapped);
+                indexSummary = IndexSummary.serializer.deserialize(
+                        mappedStream, mapped, partitioner, descriptor.version.hasSamplingLevel(),
+                        metadata.getMinIndexInterval(), metadata.getMaxIndexInterval());
+                in = mappedStream;
+            }
+            else
+            {
+                iStream = new DataInputStream(new FileInputStream(summariesFile));
+                indexSummary = IndexSummary.serializer.deserialize(
+                        iStream, partitioner, descriptor.version.hasSamplingLevel(),
+                        metadata.getMinIndexInterval(), metadata.getMaxIndexInterval());
+                in = iStream;
+            }
+            first = partitioner.decorateKey(ByteBufferUtil.readWithLength(in));
+            last = partitioner.decorateKey(ByteBufferUtil.readWithLength(in));
+            ibuilder.deserializeBounds(in);
+            dbuilder.deserializeBounds(in);
         }
         catch (IOException e)
         {
@@ -802,11 +887,23 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         finally
         {
             FileUtils.closeQuietly(iStream);
+            // the summary holds its own share of the mapping
+            if (mapped != null)
+                mapped.close();
         }
 
         return true;
     }
 
+    /**
+     * @return true if the given component should be used in place from a memory mapped file rather than be
+     * deserialized off-heap
+     */
+    private static boolean canMap(File component)
+    {
+        return DatabaseDescriptor.mmapFiltersAndSummaries() && component.length() > 0 && component.length() <= Integer.MAX_VALUE;
+    }
+
     /**
      * Validates that an index summary has full sampling, as expected when the serialization format does not support
      * persisting the sampling level.
@@ -918,7 +1015,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             assert openReason != OpenReason.EARLY;
             SSTableReader replacement = internalOpen(descriptor, components, metadata, partitioner, ifile.sharedCopy(),
                                                           dfile.sharedCopy(), indexSummary.sharedCopy(), bf.sharedCopy(),
-                                                          maxDataAge, sstableMetadata, OpenReason.MOVED_START);
+                                                          tokenCoverage, sharedPartitionIndex(), maxDataAge, sstableMetadata,
+                                                          OpenReason.MOVED_START);
             // TODO: make data/index start accurate for compressed files
             // TODO: merge with caller's firstKeyBeyond() work,to save time
             if (newStart.compareTo(first) > 0)
@@ -961,7 +1059,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
 
             SSTableReader replacement = internalOpen(descriptor, components, metadata, partitioner, ifile.sharedCopy(),
                                                           dfile.sharedCopy(), indexSummary.sharedCopy(), bf.sharedCopy(),
-                                                          maxDataAge, sstableMetadata, OpenReason.SHADOWED);
+                                                          tokenCoverage, sharedPartitionIndex(), maxDataAge, sstableMetadata,
+                                                          OpenReason.SHADOWED);
             replacement.first = first;
             replacement.last = last;
             setReplacedBy(replacement);
@@ -1023,8 +1122,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             parent.metric.liveDiskSpaceUsed.inc(newSize - oldSize);
 
             SSTableReader replacement = internalOpen(descriptor, components, metadata, partitioner, ifile.sharedCopy(),
-                                                     dfile.sharedCopy(), newSummary, bf.sharedCopy(), maxDataAge,
-                                                     sstableMetadata, OpenReason.METADATA_CHANGE);
+                                                     dfile.sharedCopy(), newSummary, bf.sharedCopy(), tokenCoverage,
+                                                     sharedPartitionIndex(), maxDataAge, sstableMetadata, OpenReason.METADATA_CHANGE);
             replacement.first = this.first;
             replacement.last = this.last;
             setReplacedBy(replacement);
@@ -1099,13 +1198,16 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
 
     /**
      * Gets the position in the index file to start scanning to find the given key (at most indexInterval keys away,
-     * modulo downsampling of the index summary). Always returns a value >= 0
+     * modulo downsampling of the index summary, or one key away with a partition index). Always returns a value >= 0
      */
     public long getIndexScanPosition(RowPosition key)
     {
         if (openReason == OpenReason.MOVED_START && key.compareTo(first) < 0)
             key = first;
 
+        if (partitionIndex != null)
+            return Math.max(0, partitionIndex.floor(key));
+
         return getIndexScanPositionFromBinarySearchResult(indexSummary.binarySearch(key), indexSummary);
     }
 
@@ -1192,6 +1294,30 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return bf.offHeapSize();
     }
 
+    /**
+     * @return the buckets of the token ring holding partitions of this sstable, or null if unknown
+     */
+    public TokenCoverage getTokenCoverage()
+    {
+        return tokenCoverage;
+    }
+
+    /**
+     * @return true if partitions are looked up through a partition index rather than the index summary
+     */
+    public boolean hasPartitionIndex()
+    {
+        return partitionIndex != null;
+    }
+
+    /**
+     * @return false if this sstable has no partition within the given bounds, true if it may have some
+     */
+    public boolean mayHaveKeysIn(AbstractBounds<RowPosition> bounds)
+    {
+        return tokenCoverage == null || tokenCoverage.intersects(bounds);
+    }
+
     /**
      * @return An estimate of the number of keys in this SSTable based on the index summary.
      */
@@ -1874,6 +2000,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         private final CFMetaData metadata;
         private IFilter bf;
         private IndexSummary summary;
+        private PartitionIndex partitionIndex;
 
         private SegmentedFile dfile;
         private SegmentedFile ifile;
@@ -1896,6 +2023,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             this.setup = true;
             this.bf = reader.bf;
             this.summary = reader.indexSummary;
+            this.partitionIndex = reader.partitionIndex;
             this.dfile = reader.dfile;
             this.ifile = reader.ifile;
             // get a new reference to the shared descriptor-type tidy
@@ -1937,6 +2065,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                     bf.close();
                     if (summary != null)
                         summary.close();
+                    if (partitionIndex != null)
+                        partitionIndex.close();
                     if (runOnClose != null)
                         runOnClose.run();
                     dfile.close();
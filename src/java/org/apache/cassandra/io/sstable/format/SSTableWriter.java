@@ -20,6 +20,7 @@ package org.apache.cassandra.io.sstable.format;
 
 import com.google.common.collect.Sets;
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamily;
@@ -29,7 +30,10 @@ import org.apache.cassandra.db.compaction.AbstractCompactedRow;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.PartitionIndex;
 import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.TermIndexBuilder;
+import org.apache.cassandra.io.sstable.TokenCoverage;
 import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
 import org.apache.cassandra.io.sstable.metadata.StatsMetadata;
 import org.apache.cassandra.io.util.FileUtils;
@@ -38,9 +42,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.DataInput;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -73,14 +80,25 @@ public abstract class SSTableWriter extends SSTable
     protected final long keyCount;
     protected final MetadataCollector metadataCollector;
     protected final RowIndexEntry.IndexSerializer rowIndexEntrySerializer;
+    // builders of the components derived from the data written, such as term indexes
+    protected final List<SSTableFlushObserver> observers;
 
     protected SSTableWriter(Descriptor descriptor, long keyCount, long repairedAt, CFMetaData metadata, IPartitioner partitioner, MetadataCollector metadataCollector)
     {
-        super(descriptor, components(metadata), metadata, partitioner);
+        super(descriptor, components(descriptor, metadata, partitioner), metadata, partitioner);
         this.keyCount = keyCount;
         this.repairedAt = repairedAt;
         this.metadataCollector = metadataCollector;
         this.rowIndexEntrySerializer = descriptor.version.getSSTableFormat().getIndexSerializer(metadata);
+
+        // the indexed columns are looked up once, so that each component has a builder even if the schema changes
+        this.observers = new ArrayList<>();
+        for (ColumnDefinition column : TermIndexBuilder.indexedColumns(metadata))
+        {
+            Component component = TermIndexBuilder.componentFor(column);
+            components.add(component);
+            observers.add(new TermIndexBuilder(new File(descriptor.filenameFor(component)), metadata, column));
+        }
     }
 
     public static SSTableWriter create(Descriptor descriptor, Long keyCount, Long repairedAt, CFMetaData metadata,  IPartitioner partitioner, MetadataCollector metadataCollector)
@@ -121,7 +139,7 @@ public abstract class SSTableWriter extends SSTable
         return create(Descriptor.fromFilename(filename), keyCount, repairedAt, 0);
     }
 
-    private static Set<Component> components(CFMetaData metadata)
+    private static Set<Component> components(Descriptor descriptor, CFMetaData metadata, IPartitioner partitioner)
     {
         Set<Component> components = new HashSet<Component>(Arrays.asList(Component.DATA,
                 Component.PRIMARY_INDEX,
@@ -133,6 +151,12 @@ public abstract class SSTableWriter extends SSTable
         if (metadata.getBloomFilterFpChance() < 1.0)
             components.add(Component.FILTER);
 
+        if (TokenCoverage.isSupported(partitioner))
+            components.add(Component.TOKEN_COVERAGE);
+
+        if (descriptor.version.hasPartitionIndex() && PartitionIndex.isSupported(partitioner))
+            components.add(Component.PARTITION_INDEX);
+
         if (metadata.compressionParameters().sstableCompressor != null)
         {
             components.add(Component.COMPRESSION_INFO);
@@ -199,6 +199,12 @@ public class BigFormat implements SSTableFormat
             return newFileName;
         }
 
+        @Override
+        public boolean hasPartitionIndex()
+        {
+            return false;
+        }
+
         @Override
         public boolean isCompatible()
         {
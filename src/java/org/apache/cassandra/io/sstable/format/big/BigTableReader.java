@@ -161,11 +161,22 @@ public class BigTableReader extends SSTableReader
             return null;
         }
 
-        int binarySearchResult = indexSummary.binarySearch(key);
-        long sampledPosition = getIndexScanPositionFromBinarySearchResult(binarySearchResult, indexSummary);
-        int sampledIndex = getIndexSummaryIndexFromBinarySearchResult(binarySearchResult);
+        long sampledPosition;
+        int effectiveInterval;
+        if (partitionIndex != null)
+        {
+            // the key can only be at the entry the partition index finds, and any greater key is at most one entry on
+            sampledPosition = Math.max(0, partitionIndex.floor(key));
+            effectiveInterval = 1;
+        }
+        else
+        {
+            int binarySearchResult = indexSummary.binarySearch(key);
+            sampledPosition = getIndexScanPositionFromBinarySearchResult(binarySearchResult, indexSummary);
+            int sampledIndex = getIndexSummaryIndexFromBinarySearchResult(binarySearchResult);
 
-        int effectiveInterval = indexSummary.getEffectiveIndexIntervalAfterIndex(sampledIndex);
+            effectiveInterval = indexSummary.getEffectiveIndexIntervalAfterIndex(sampledIndex);
+        }
 
         // scan the on-disk index, starting at the nearest sampled position.
         // The check against IndexInterval is to be exit the loop in the EQ case when the key looked for is not present
@@ -70,6 +70,8 @@ public class BigTableScanner implements ISSTableScanner
     public static ISSTableScanner getScanner(SSTableReader sstable, Collection<Range<Token>> tokenRanges, RateLimiter limiter)
     {
         // We want to avoid allocating a SSTableScanner if the range don't overlap the sstable (#5249)
+        if (!mayHaveKeysIn(sstable, tokenRanges))
+            return new EmptySSTableScanner(sstable.getFilename());
         List<Pair<Long, Long>> positions = sstable.getPositionsForRanges(tokenRanges);
         if (positions.isEmpty())
             return new EmptySSTableScanner(sstable.getFilename());
@@ -77,6 +79,16 @@ public class BigTableScanner implements ISSTableScanner
         return new BigTableScanner(sstable, tokenRanges, limiter);
     }
 
+    private static boolean mayHaveKeysIn(SSTableReader sstable, Collection<Range<Token>> tokenRanges)
+    {
+        for (Range<Token> range : tokenRanges)
+        {
+            if (sstable.mayHaveKeysIn(Range.makeRowRange(range)))
+                return true;
+        }
+        return false;
+    }
+
     /**
      * @param sstable SSTable to scan; must not be null
      * @param dataRange a single range to scan; must not be null
@@ -19,6 +19,7 @@ package org.apache.cassandra.io.sstable.format.big;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.Set;
 
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.io.sstable.*;
+import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.SSTableWriter;
 import org.apache.cassandra.io.sstable.format.Version;
@@ -91,6 +93,8 @@ public class BigTableWriter extends SSTableWriter
 
     public void resetAndTruncate()
     {
+        // the observers keep what they saw of the discarded partition, which term indexes can afford as their
+        // entries are only candidates
         dataFile.resetAndTruncate(dataMark);
         iwriter.resetAndTruncate();
     }
@@ -103,6 +107,8 @@ public class BigTableWriter extends SSTableWriter
         assert decoratedKey != null : "Keys must not be null"; // empty keys ARE allowed b/c of indexed column values
         if (lastWrittenKey != null && lastWrittenKey.compareTo(decoratedKey) >= 0)
             throw new RuntimeException("Last written key " + lastWrittenKey + " >= current key " + decoratedKey + " writing into " + getFilename());
+        for (SSTableFlushObserver observer : observers)
+            observer.startPartition(decoratedKey);
         return (lastWrittenKey == null) ? 0 : dataFile.getFilePointer();
     }
 
@@ -130,7 +136,7 @@ public class BigTableWriter extends SSTableWriter
         RowIndexEntry entry;
         try
         {
-            entry = row.write(startPosition, dataFile);
+            entry = row.write(startPosition, dataFile, observers);
             if (entry == null)
                 return null;
             long endPosition = dataFile.getFilePointer();
@@ -158,7 +164,7 @@ public class BigTableWriter extends SSTableWriter
         long endPosition;
         try
         {
-            RowIndexEntry entry = rawAppend(cf, startPosition, decoratedKey, dataFile.stream);
+            RowIndexEntry entry = rawAppend(cf, startPosition, decoratedKey, dataFile.stream, observers);
             endPosition = dataFile.getFilePointer();
             afterAppend(decoratedKey, endPosition, entry);
         }
@@ -169,11 +175,11 @@ public class BigTableWriter extends SSTableWriter
         metadataCollector.update(endPosition - startPosition, cf.getColumnStats());
     }
 
-    private static RowIndexEntry rawAppend(ColumnFamily cf, long startPosition, DecoratedKey key, DataOutputPlus out) throws IOException
+    private static RowIndexEntry rawAppend(ColumnFamily cf, long startPosition, DecoratedKey key, DataOutputPlus out, Collection<SSTableFlushObserver> observers) throws IOException
     {
         assert cf.hasColumns() || cf.isMarkedForDelete();
 
-        ColumnIndex.Builder builder = new ColumnIndex.Builder(cf, key.getKey(), out);
+        ColumnIndex.Builder builder = new ColumnIndex.Builder(cf, key.getKey(), out, observers);
         ColumnIndex index = builder.build(cf);
 
         out.writeShort(END_OF_ROW);
@@ -199,7 +205,7 @@ public class BigTableWriter extends SSTableWriter
         ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata);
         cf.delete(DeletionTime.serializer.deserialize(in));
 
-        ColumnIndex.Builder columnIndexer = new ColumnIndex.Builder(cf, key.getKey(), dataFile.stream);
+        ColumnIndex.Builder columnIndexer = new ColumnIndex.Builder(cf, key.getKey(), dataFile.stream, observers);
 
         if (cf.deletionInfo().getTopLevelDeletion().localDeletionTime < Integer.MAX_VALUE)
         {
@@ -288,6 +294,9 @@ public class BigTableWriter extends SSTableWriter
         if (dbuilder != null)
             dbuilder.close();
 
+        for (SSTableFlushObserver observer : observers)
+            observer.abort();
+
         Set<Component> components = SSTable.componentsFor(descriptor);
         try
         {
@@ -343,7 +352,8 @@ public class BigTableWriter extends SSTableWriter
                                                            components, metadata,
                                                            partitioner, ifile,
                                                            dfile, iwriter.summary.build(partitioner, boundary),
-                                                           iwriter.bf.sharedCopy(), maxDataAge, sstableMetadata, SSTableReader.OpenReason.EARLY);
+                                                           iwriter.bf.sharedCopy(), iwriter.buildCoverage(), null, maxDataAge,
+                                                           sstableMetadata, SSTableReader.OpenReason.EARLY);
 
         // now it's open, find the ACTUAL last readable key (i.e. for which the data file has also been flushed)
         sstable.first = getMinimalKey(first);
@@ -384,6 +394,8 @@ public class BigTableWriter extends SSTableWriter
                                                            dfile,
                                                            iwriter.summary.build(partitioner),
                                                            iwriter.bf.sharedCopy(),
+                                                           iwriter.buildCoverage(),
+                                                           iwriter.openPartitionIndex(p.left),
                                                            maxDataAge,
                                                            metadata,
                                                            finishType.openReason);
@@ -422,6 +434,8 @@ public class BigTableWriter extends SSTableWriter
             case EARLY: case CLOSE: case NORMAL:
             iwriter.close();
             dataFile.close();
+            for (SSTableFlushObserver observer : observers)
+                observer.complete();
             if (type == FinishType.CLOSE)
                 iwriter.bf.close();
         }
@@ -482,14 +496,24 @@ public class BigTableWriter extends SSTableWriter
         public final SegmentedFile.Builder builder;
         public final IndexSummaryBuilder summary;
         public final IFilter bf;
+        private final TokenCoverage.Builder coverage;
+        private final PartitionIndexBuilder partitionIndex;
         private FileMark mark;
 
         IndexWriter(long keyCount, final SequentialWriter dataFile)
         {
             indexFile = SequentialWriter.open(new File(descriptor.filenameFor(Component.PRIMARY_INDEX)));
             builder = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode(), false);
-            summary = new IndexSummaryBuilder(keyCount, metadata.getMinIndexInterval(), Downsampling.BASE_SAMPLING_LEVEL);
-            bf = FilterFactory.getFilter(keyCount, metadata.getBloomFilterFpChance(), true);
+            partitionIndex = components.contains(Component.PARTITION_INDEX)
+                           ? new PartitionIndexBuilder(new File(descriptor.filenameFor(Component.PARTITION_INDEX)))
+                           : null;
+            // with a partition index the summary is only used for estimates, so sample it as sparsely as allowed
+            int samplingLevel = partitionIndex == null
+                              ? Downsampling.BASE_SAMPLING_LEVEL
+                              : IndexSummaryBuilder.minSamplingLevel(metadata.getMinIndexInterval(), metadata.getMaxIndexInterval());
+            summary = new IndexSummaryBuilder(keyCount, metadata.getMinIndexInterval(), samplingLevel);
+            bf = FilterFactory.getFilter(keyCount, metadata.getBloomFilterFpChance(), true, DatabaseDescriptor.useBlockedBloomFilters());
+            coverage = components.contains(Component.TOKEN_COVERAGE) ? new TokenCoverage.Builder(keyCount) : null;
             // register listeners to be alerted when the data files are flushed
             indexFile.setPostFlushListener(new Runnable()
             {
@@ -516,6 +540,8 @@ public class BigTableWriter extends SSTableWriter
         public void append(DecoratedKey key, RowIndexEntry indexEntry, long dataEnd) throws IOException
         {
             bf.add(key);
+            if (coverage != null)
+                coverage.add(key.getToken());
             long indexStart = indexFile.getFilePointer();
             try
             {
@@ -533,12 +559,29 @@ public class BigTableWriter extends SSTableWriter
 
             summary.maybeAddEntry(key, indexStart, indexEnd, dataEnd);
             builder.addPotentialBoundary(indexStart);
+            if (partitionIndex != null)
+                partitionIndex.add(key, indexStart);
+        }
+
+        TokenCoverage buildCoverage()
+        {
+            return coverage == null ? null : coverage.build();
+        }
+
+        /**
+         * @return the partition index written to the given sstable once this has been closed, or null if there is none
+         */
+        PartitionIndex openPartitionIndex(Descriptor desc)
+        {
+            return partitionIndex == null ? null : PartitionIndex.open(new File(desc.filenameFor(Component.PARTITION_INDEX)));
         }
 
         public void abort()
         {
             summary.close();
             indexFile.abort();
+            if (partitionIndex != null)
+                partitionIndex.abort();
             bf.close();
             builder.close();
         }
@@ -567,6 +610,27 @@ public class BigTableWriter extends SSTableWriter
                 }
             }
 
+            if (coverage != null)
+            {
+                String path = descriptor.filenameFor(Component.TOKEN_COVERAGE);
+                try
+                {
+                    FileOutputStream fos = new FileOutputStream(path);
+                    DataOutputStreamPlus stream = new BufferedDataOutputStreamPlus(fos);
+                    TokenCoverage.serializer.serialize(coverage.build(), stream);
+                    stream.flush();
+                    fos.getFD().sync();
+                    stream.close();
+                }
+                catch (IOException e)
+                {
+                    throw new FSWriteError(e, path);
+                }
+            }
+
+            if (partitionIndex != null)
+                partitionIndex.complete();
+
             // index
             long position = indexFile.getFilePointer();
             indexFile.close(); // calls force
@@ -580,7 +644,8 @@ public class BigTableWriter extends SSTableWriter
 
         public void resetAndTruncate()
         {
-            // we can't un-set the bloom filter addition, but extra keys in there are harmless.
+            // we can't un-set the bloom filter addition, but extra keys in there are harmless. keys are only added
+            // to the partition index once their entry is written, so it never holds one past the mark.
             // we can't reset dbuilder either, but that is the last thing called in afterappend so
             // we assume that if that worked then we won't be trying to reset.
             indexFile.resetAndTruncate(mark);
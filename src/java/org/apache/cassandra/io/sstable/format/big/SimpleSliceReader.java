@@ -18,7 +18,6 @@
 package org.apache.cassandra.io.sstable.format.big;
 
 import java.io.IOException;
-import java.util.Iterator;
 
 import com.google.common.collect.AbstractIterator;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
@@ -27,13 +26,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.db.*;
-import org.apache.cassandra.db.composites.CellNameType;
 import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.util.FileDataInput;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.ByteBufferUtil;
 
+/**
+ * Reads a slice starting at the beginning of a partition. The name of each atom is compared to the end of the slice
+ * before anything else of it is read, so the atom ending the slice is never deserialized.
+ */
 class SimpleSliceReader extends AbstractIterator<OnDiskAtom> implements OnDiskAtomIterator
 {
     private static final Logger logger = LoggerFactory.getLogger(SimpleSliceReader.class);
@@ -41,15 +43,15 @@ class SimpleSliceReader extends AbstractIterator<OnDiskAtom> implements OnDiskAt
     private final FileDataInput file;
     private final boolean needsClosing;
     private final Composite finishColumn;
-    private final CellNameType comparator;
+    private final SSTableReader sstable;
     private final ColumnFamily emptyColumnFamily;
-    private final Iterator<OnDiskAtom> atomIterator;
+    private final AtomDeserializer deserializer;
 
     SimpleSliceReader(SSTableReader sstable, RowIndexEntry indexEntry, FileDataInput input, Composite finishColumn)
     {
         Tracing.trace("Seeking to partition beginning in data file");
+        this.sstable = sstable;
         this.finishColumn = finishColumn;
-        this.comparator = sstable.metadata.comparator;
         try
         {
             if (input == null)
@@ -69,7 +71,7 @@ class SimpleSliceReader extends AbstractIterator<OnDiskAtom> implements OnDiskAt
 
             emptyColumnFamily = ArrayBackedSortedColumns.factory.create(sstable.metadata);
             emptyColumnFamily.delete(DeletionTime.serializer.deserialize(file));
-            atomIterator = emptyColumnFamily.metadata().getOnDiskIterator(file, sstable.descriptor.version);
+            deserializer = emptyColumnFamily.metadata().getOnDiskDeserializer(file, sstable.descriptor.version);
         }
         catch (IOException e)
         {
@@ -80,14 +82,21 @@ class SimpleSliceReader extends AbstractIterator<OnDiskAtom> implements OnDiskAt
 
     protected OnDiskAtom computeNext()
     {
-        if (!atomIterator.hasNext())
-            return endOfData();
+        try
+        {
+            if (!deserializer.hasNext())
+                return endOfData();
 
-        OnDiskAtom column = atomIterator.next();
-        if (!finishColumn.isEmpty() && comparator.compare(column.name(), finishColumn) > 0)
-            return endOfData();
+            if (!finishColumn.isEmpty() && deserializer.compareNextTo(finishColumn) > 0)
+                return endOfData();
 
-        return column;
+            return deserializer.readNext();
+        }
+        catch (IOException e)
+        {
+            sstable.markSuspect();
+            throw new CorruptSSTableException(e, file.getPath());
+        }
     }
 
     public ColumnFamily getColumnFamily()
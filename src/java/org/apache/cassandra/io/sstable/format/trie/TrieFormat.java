@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable.format.trie;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.ColumnSerializer;
+import org.apache.cassandra.db.OnDiskAtom;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
+import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.db.compaction.CompactionController;
+import org.apache.cassandra.io.sstable.format.SSTableFormat;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.sstable.format.SSTableWriter;
+import org.apache.cassandra.io.sstable.format.Version;
+import org.apache.cassandra.io.sstable.format.big.BigFormat;
+import org.apache.cassandra.io.util.FileDataInput;
+
+import java.util.Iterator;
+
+/**
+ * The bigtable format with its partitions looked up through a {@link org.apache.cassandra.io.sstable.PartitionIndex}
+ * trie rather than the index summary. The data and primary index files are those of the big format, and the index
+ * summary is only kept at the maximum index interval for the estimates and early opened readers that still use it.
+ */
+public class TrieFormat implements SSTableFormat
+{
+    public static final TrieFormat instance = new TrieFormat();
+    public static final TrieVersion latestVersion = new TrieVersion(TrieVersion.current_version);
+
+    private TrieFormat()
+    {
+
+    }
+
+    @Override
+    public Version getLatestVersion()
+    {
+        return latestVersion;
+    }
+
+    @Override
+    public Version getVersion(String version)
+    {
+        return new TrieVersion(version);
+    }
+
+    @Override
+    public SSTableWriter.Factory getWriterFactory()
+    {
+        return BigFormat.instance.getWriterFactory();
+    }
+
+    @Override
+    public SSTableReader.Factory getReaderFactory()
+    {
+        return BigFormat.instance.getReaderFactory();
+    }
+
+    @Override
+    public Iterator<OnDiskAtom> getOnDiskIterator(FileDataInput in, ColumnSerializer.Flag flag, int expireBefore, CFMetaData cfm, Version version)
+    {
+        return BigFormat.instance.getOnDiskIterator(in, flag, expireBefore, cfm, version);
+    }
+
+    @Override
+    public AbstractCompactedRow getCompactedRowWriter(CompactionController controller, ImmutableList<OnDiskAtomIterator> onDiskAtomIterators)
+    {
+        return BigFormat.instance.getCompactedRowWriter(controller, onDiskAtomIterators);
+    }
+
+    @Override
+    public RowIndexEntry.IndexSerializer getIndexSerializer(CFMetaData cfMetaData)
+    {
+        return BigFormat.instance.getIndexSerializer(cfMetaData);
+    }
+
+    static class TrieVersion extends Version
+    {
+        public static final String current_version = "aa";
+        public static final String earliest_supported_version = "aa";
+
+        // aa (3.0.0): big format "la" with a partition index
+
+        private final boolean isLatestVersion;
+
+        public TrieVersion(String version)
+        {
+            super(instance, version);
+
+            isLatestVersion = version.compareTo(current_version) == 0;
+        }
+
+        @Override
+        public boolean isLatestVersion()
+        {
+            return isLatestVersion;
+        }
+
+        @Override
+        public boolean hasSamplingLevel()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean hasNewStatsFile()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean hasAllAdlerChecksums()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean hasRepairedAt()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean tracksLegacyCounterShards()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean hasNewFileName()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean hasPartitionIndex()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isCompatible()
+        {
+            return version.compareTo(earliest_supported_version) >= 0 && version.charAt(0) <= current_version.charAt(0);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.io.util;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import sun.nio.ch.DirectBuffer;
+
+import org.apache.cassandra.utils.concurrent.Ref;
+import org.apache.cassandra.utils.concurrent.RefCounted;
+import org.apache.cassandra.utils.concurrent.SharedCloseable;
+
+/**
+ * A read-only region of a memory mapped file that can be read like any other {@link Memory}, leaving it to the page
+ * cache to decide which parts stay resident. Regions of the same file share the mapping, which is released once
+ * the last of them is closed.
+ */
+public class MappedMemory extends Memory implements SharedCloseable
+{
+    private final Ref<?> ref;
+
+    private MappedMemory(long peer, long size, Ref<?> ref)
+    {
+        super(peer, size);
+        this.ref = ref;
+    }
+
+    /**
+     * Maps the whole of the given file, which must be non-empty and smaller than 2GB.
+     */
+    public static MappedMemory map(File file)
+    {
+        try (ChannelProxy channel = new ChannelProxy(file))
+        {
+            long length = channel.size();
+            if (length == 0 || length > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(String.format("Cannot map %s of %d bytes", file, length));
+            return map(channel, 0, length);
+        }
+    }
+
+    /**
+     * Maps the bytes [position, position + length) of the given channel, which must be non-empty and smaller than 2GB.
+     */
+    static MappedMemory map(ChannelProxy channel, long position, long length)
+    {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return new MappedMemory(((DirectBuffer) buffer).address(), length, new Ref<>(null, new MappingTidy(buffer, channel.filePath())));
+    }
+
+    /**
+     * @return the bytes [offset, offset + length) of this region, sharing its mapping. The result must be closed
+     * independently of this region.
+     */
+    public MappedMemory region(long offset, long length)
+    {
+        checkBounds(offset, offset + length);
+        return new MappedMemory(peer + offset, length, ref.ref());
+    }
+
+    public MappedMemory sharedCopy()
+    {
+        return region(0, size);
+    }
+
+    public void free()
+    {
+        ref.release();
+        peer = 0;
+    }
+
+    public void close()
+    {
+        ref.ensureReleased();
+        peer = 0;
+    }
+
+    private static final class MappingTidy implements RefCounted.Tidy
+    {
+        final MappedByteBuffer buffer;
+        final String path;
+
+        private MappingTidy(MappedByteBuffer buffer, String path)
+        {
+            this.buffer = buffer;
+            this.path = path;
+        }
+
+        public void tidy() throws Exception
+        {
+            if (FileUtils.isCleanerAvailable())
+                FileUtils.clean(buffer);
+        }
+
+        public String name()
+        {
+            return path;
+        }
+    }
+}
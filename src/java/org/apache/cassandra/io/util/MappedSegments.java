@@ -0,0 +1,113 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.io.util;
+
+import java.io.File;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.utils.concurrent.SharedCloseable;
+
+/**
+ * A memory mapped file of any size, read a byte at a time. Files of 2GB or more can't be mapped at once, so like
+ * {@link MmappedSegmentedFile} it is mapped as several segments; unlike it, the segments are all the same size and
+ * don't need to be aligned with anything in the file, since nothing is read across them in one go.
+ */
+public class MappedSegments implements SharedCloseable
+{
+    public static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private final MappedMemory[] segments;
+    private final int shift;
+    private final long mask;
+    private final long size;
+
+    private MappedSegments(MappedMemory[] segments, int shift, long size)
+    {
+        this.segments = segments;
+        this.shift = shift;
+        this.mask = (1L << shift) - 1;
+        this.size = size;
+    }
+
+    /**
+     * Maps the whole of the given file, which must be non-empty.
+     */
+    public static MappedSegments map(File file)
+    {
+        return map(file, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    @VisibleForTesting
+    public static MappedSegments map(File file, int segmentShift)
+    {
+        assert segmentShift > 0 && segmentShift < 31 : segmentShift;
+        try (ChannelProxy channel = new ChannelProxy(file))
+        {
+            long length = channel.size();
+            if (length == 0)
+                throw new IllegalArgumentException(String.format("Cannot map %s of %d bytes", file, length));
+
+            long segmentSize = 1L << segmentShift;
+            MappedMemory[] segments = new MappedMemory[(int) ((length + segmentSize - 1) >>> segmentShift)];
+            try
+            {
+                for (int i = 0; i < segments.length; i++)
+                {
+                    long position = (long) i << segmentShift;
+                    segments[i] = MappedMemory.map(channel, position, Math.min(segmentSize, length - position));
+                }
+            }
+            catch (RuntimeException | Error e)
+            {
+                for (MappedMemory segment : segments)
+                {
+                    if (segment != null)
+                        segment.close();
+                }
+                throw e;
+            }
+            return new MappedSegments(segments, segmentShift, length);
+        }
+    }
+
+    public byte getByte(long position)
+    {
+        return segments[(int) (position >>> shift)].getByte(position & mask);
+    }
+
+    public long size()
+    {
+        return size;
+    }
+
+    public MappedSegments sharedCopy()
+    {
+        MappedMemory[] copies = new MappedMemory[segments.length];
+        for (int i = 0; i < segments.length; i++)
+            copies[i] = segments[i].sharedCopy();
+        return new MappedSegments(copies, shift, size);
+    }
+
+    public void close()
+    {
+        for (MappedMemory segment : segments)
+            segment.close();
+    }
+}
@@ -86,6 +86,16 @@ public class Memory implements AutoCloseable
         peer = copyOf.peer;
     }
 
+    // create a memory object over a region owned by someone else, such as a memory mapped file.
+    // this should ONLY be used by MappedMemory
+    protected Memory(long peer, long size)
+    {
+        if (peer == 0)
+            throw new AssertionError();
+        this.size = size;
+        this.peer = peer;
+    }
+
     public static Memory allocate(long bytes)
     {
         if (bytes < 0)
@@ -18,6 +18,7 @@
 package org.apache.cassandra.io.util;
 
 import java.io.DataInput;
+import java.io.EOFException;
 import java.io.IOException;
 
 public class MemoryInputStream extends AbstractDataInput implements DataInput
@@ -32,11 +33,15 @@ public class MemoryInputStream extends AbstractDataInput implements DataInput
 
     public int read() throws IOException
     {
+        if (position >= mem.size())
+            return -1;
         return mem.getByte(position++) & 0xFF;
     }
 
     public void readFully(byte[] buffer, int offset, int count) throws IOException
     {
+        if (position + (long) count > mem.size())
+            throw new EOFException();
         mem.getBytes(position, buffer, offset, count);
         position += count;
     }
@@ -21,6 +21,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
@@ -40,7 +41,6 @@ import org.apache.cassandra.service.DatacenterSyncWriteResponseHandler;
 import org.apache.cassandra.service.DatacenterWriteResponseHandler;
 import org.apache.cassandra.service.WriteResponseHandler;
 import org.apache.cassandra.utils.FBUtilities;
-import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
 /**
  * A abstract parent for all replication strategies.
@@ -55,8 +55,9 @@ public abstract class AbstractReplicationStrategy
     public final Map<String, String> configOptions;
     private final TokenMetadata tokenMetadata;
 
-    // track when the token range changes, signaling we need to invalidate our endpoint cache
-    private volatile long lastInvalidatedVersion = 0;
+    // the replicas of every range of the ring, rebuilt as a whole when the ring version changes
+    private volatile ReplicaPlacement placement;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
 
     public IEndpointSnitch snitch;
 
@@ -72,30 +73,61 @@ public abstract class AbstractReplicationStrategy
         // lazy-initialize keyspace itself since we don't create them until after the replication strategies
     }
 
-    private final Map<Token, ArrayList<InetAddress>> cachedEndpoints = new NonBlockingHashMap<Token, ArrayList<InetAddress>>();
-
-    public ArrayList<InetAddress> getCachedEndpoints(Token t)
+    private ReplicaPlacement getReplicaPlacement()
     {
-        long lastVersion = tokenMetadata.getRingVersion();
+        long ringVersion = tokenMetadata.getRingVersion();
+        ReplicaPlacement current = placement;
+        if (current != null && current.ringVersion >= ringVersion)
+            return current;
+
+        // the table is normally rebuilt in the background by refreshReplicaPlacement; until it is published,
+        // keep using the previous one, unless nobody is rebuilding it. Only the very first table makes callers wait.
+        if (current != null && !rebuildLock.tryLock())
+            return current;
+        if (current == null)
+            rebuildLock.lock();
+        try
+        {
+            return rebuildIfStale(ringVersion);
+        }
+        finally
+        {
+            rebuildLock.unlock();
+        }
+    }
 
-        if (lastVersion > lastInvalidatedVersion)
+    /**
+     * Rebuilds the replicas of every range if the ring has changed since they were last built, so that requests
+     * don't have to. Called after ring changes, when pending ranges are recalculated.
+     */
+    public void refreshReplicaPlacement()
+    {
+        rebuildLock.lock();
+        try
         {
-            synchronized (this)
-            {
-                if (lastVersion > lastInvalidatedVersion)
-                {
-                    logger.debug("clearing cached endpoints");
-                    cachedEndpoints.clear();
-                    lastInvalidatedVersion = lastVersion;
-                }
-            }
+            rebuildIfStale(tokenMetadata.getRingVersion());
         }
+        finally
+        {
+            rebuildLock.unlock();
+        }
+    }
 
-        return cachedEndpoints.get(t);
+    private ReplicaPlacement rebuildIfStale(long ringVersion)
+    {
+        assert rebuildLock.isHeldByCurrentThread();
+        ReplicaPlacement current = placement;
+        if (current == null || current.ringVersion < ringVersion)
+        {
+            logger.debug("rebuilding replica placement for ring version {}", ringVersion);
+            current = new ReplicaPlacement(ringVersion, tokenMetadata.cachedOnlyTokenMap());
+            placement = current;
+        }
+        return current;
     }
 
     /**
-     * get the (possibly cached) endpoints that should store the given Token.
+     * get the endpoints that should store the given Token, as of the last ring change.
      * Note that while the endpoints are conceptually a Set (no duplicates will be included),
      * we return a List to avoid an extra allocation when sorting by proximity later
      * @param searchPosition the position the natural endpoints are requested for
@@ -104,18 +136,10 @@ public abstract class AbstractReplicationStrategy
     public ArrayList<InetAddress> getNaturalEndpoints(RingPosition searchPosition)
     {
         Token searchToken = searchPosition.getToken();
-        Token keyToken = TokenMetadata.firstToken(tokenMetadata.sortedTokens(), searchToken);
-        ArrayList<InetAddress> endpoints = getCachedEndpoints(keyToken);
-        if (endpoints == null)
-        {
-            TokenMetadata tm = tokenMetadata.cachedOnlyTokenMap();
-            // if our cache got invalidated, it's possible there is a new token to account for too
-            keyToken = TokenMetadata.firstToken(tm.sortedTokens(), searchToken);
-            endpoints = new ArrayList<InetAddress>(calculateNaturalEndpoints(searchToken, tm));
-            cachedEndpoints.put(keyToken, endpoints);
-        }
-
-        return new ArrayList<InetAddress>(endpoints);
+        ReplicaPlacement current = getReplicaPlacement();
+        if (current.tokens.length == 0)
+            return new ArrayList<InetAddress>(calculateNaturalEndpoints(searchToken, current.metadata));
+        return new ArrayList<InetAddress>(current.replicasFor(searchToken));
     }
 
     /**
@@ -326,4 +350,36 @@ public abstract class AbstractReplicationStrategy
                 throw new ConfigurationException(String.format("Unrecognized strategy option {%s} passed to %s for keyspace %s", key, getClass().getSimpleName(), keyspaceName));
         }
     }
+
+    /**
+     * The replicas of each range of a ring, in token order: the range ending at tokens[i] (inclusive) is replicated
+     * on replicas[i], and tokens past the last one wrap around to the first range. Immutable, and replaced as a
+     * whole when the ring changes, so that lookups are a binary search.
+     */
+    private final class ReplicaPlacement
+    {
+        final long ringVersion;
+        final TokenMetadata metadata;
+        final Token[] tokens;
+        final List<List<InetAddress>> replicas;
+
+        ReplicaPlacement(long ringVersion, TokenMetadata metadata)
+        {
+            this.ringVersion = ringVersion;
+            this.metadata = metadata;
+            List<Token> sortedTokens = metadata.sortedTokens();
+            tokens = sortedTokens.toArray(new Token[sortedTokens.size()]);
+            replicas = new ArrayList<>(tokens.length);
+            for (Token token : tokens)
+                replicas.add(calculateNaturalEndpoints(token, metadata));
+        }
+
+        List<InetAddress> replicasFor(Token token)
+        {
+            int i = Arrays.binarySearch(tokens, token);
+            if (i < 0)
+                i = -i - 1;
+            return replicas.get(i == tokens.length ? 0 : i);
+        }
+    }
 }
@@ -24,8 +24,8 @@ import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import com.codahale.metrics.ExponentiallyDecayingReservoir;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
@@ -41,8 +41,7 @@ import org.apache.cassandra.utils.FBUtilities;
  */
 public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILatencySubscriber, DynamicEndpointSnitchMBean
 {
-    private static final double ALPHA = 0.75; // set to 0.75 to make EDS more biased to towards the newer values
-    private static final int WINDOW_SIZE = 100;
+    private static final double ALPHA = 0.25; // the weight of the newest latency in a host's moving average
 
     private int UPDATE_INTERVAL_IN_MS = DatabaseDescriptor.getDynamicUpdateInterval();
     private int RESET_INTERVAL_IN_MS = DatabaseDescriptor.getDynamicResetInterval();
@@ -56,7 +55,7 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     private boolean registered = false;
 
     private volatile HashMap<InetAddress, Double> scores = new HashMap<>();
-    private final ConcurrentHashMap<InetAddress, ExponentiallyDecayingReservoir> samples = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<InetAddress, LatencyAverage> samples = new ConcurrentHashMap<>();
 
     public final IEndpointSnitch subsnitch;
 
@@ -165,25 +164,25 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
             return;
 
         subsnitch.sortByProximity(address, addresses);
-        ArrayList<Double> subsnitchOrderedScores = new ArrayList<>(addresses.size());
-        for (InetAddress inet : addresses)
+        Map<InetAddress, Double> scores = this.scores;
+        double[] subsnitchOrderedScores = new double[addresses.size()];
+        for (int i = 0; i < subsnitchOrderedScores.length; i++)
         {
-            Double score = scores.get(inet);
+            Double score = scores.get(addresses.get(i));
             if (score == null)
                 return;
-            subsnitchOrderedScores.add(score);
+            subsnitchOrderedScores[i] = score;
         }
 
         // Sort the scores and then compare them (positionally) to the scores in the subsnitch order.
         // If any of the subsnitch-ordered scores exceed the optimal/sorted score by BADNESS_THRESHOLD, use
         // the score-sorted ordering instead of the subsnitch ordering.
-        ArrayList<Double> sortedScores = new ArrayList<>(subsnitchOrderedScores);
-        Collections.sort(sortedScores);
+        double[] sortedScores = subsnitchOrderedScores.clone();
+        Arrays.sort(sortedScores);
 
-        Iterator<Double> sortedScoreIterator = sortedScores.iterator();
-        for (Double subsnitchScore : subsnitchOrderedScores)
+        for (int i = 0; i < subsnitchOrderedScores.length; i++)
         {
-            if (subsnitchScore > (sortedScoreIterator.next() * (1.0 + BADNESS_THRESHOLD)))
+            if (subsnitchOrderedScores[i] > (sortedScores[i] * (1.0 + BADNESS_THRESHOLD)))
             {
                 sortByProximityWithScore(address, addresses);
                 return;
@@ -218,10 +217,10 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
 
     public void receiveTiming(InetAddress host, long latency) // this is cheap
     {
-        ExponentiallyDecayingReservoir sample = samples.get(host);
+        LatencyAverage sample = samples.get(host);
         if (sample == null)
         {
-            ExponentiallyDecayingReservoir maybeNewSample = new ExponentiallyDecayingReservoir(WINDOW_SIZE, ALPHA);
+            LatencyAverage maybeNewSample = new LatencyAverage();
             sample = samples.putIfAbsent(host, maybeNewSample);
             if (sample == null)
                 sample = maybeNewSample;
@@ -229,7 +228,7 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         sample.update(latency);
     }
 
-    private void updateScores() // this is expensive
+    private void updateScores()
     {
         if (!StorageService.instance.isInitialized()) 
             return;
@@ -245,22 +244,24 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         double maxLatency = 1;
         // We're going to weight the latency for each host against the worst one we see, to
         // arrive at sort of a 'badness percentage' for them. First, find the worst for each:
+        // Read every average once, so that both passes see the same values.
         HashMap<InetAddress, Double> newScores = new HashMap<>();
-        for (Map.Entry<InetAddress, ExponentiallyDecayingReservoir> entry : samples.entrySet())
+        for (Map.Entry<InetAddress, LatencyAverage> entry : samples.entrySet())
         {
-            double mean = entry.getValue().getSnapshot().getMedian();
+            double mean = entry.getValue().get();
+            newScores.put(entry.getKey(), mean);
             if (mean > maxLatency)
                 maxLatency = mean;
         }
         // now make another pass to do the weighting based on the maximums we found before
-        for (Map.Entry<InetAddress, ExponentiallyDecayingReservoir> entry: samples.entrySet())
+        for (Map.Entry<InetAddress, Double> entry : newScores.entrySet())
         {
-            double score = entry.getValue().getSnapshot().getMedian() / maxLatency;
+            double score = entry.getValue() / maxLatency;
             // finally, add the severity without any weighting, since hosts scale this relative to their own load and the size of the task causing the severity.
             // "Severity" is basically a measure of compaction activity (CASSANDRA-3722).
             score += StorageService.instance.getSeverity(entry.getKey());
             // lowest score (least amount of badness) wins.
-            newScores.put(entry.getKey(), score);
+            entry.setValue(score);
         }
         scores = newScores;
     }
@@ -297,12 +298,9 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     {
         InetAddress host = InetAddress.getByName(hostname);
         ArrayList<Double> timings = new ArrayList<Double>();
-        ExponentiallyDecayingReservoir sample = samples.get(host);
+        LatencyAverage sample = samples.get(host);
         if (sample != null)
-        {
-            for (double time: sample.getSnapshot().getValues())
-                timings.add(time);
-        }
+            timings.add(sample.get());
         return timings;
     }
 
@@ -350,4 +348,35 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         }
         return maxScore;
     }
+
+    /**
+     * An exponentially weighted moving average of the latencies of a host. It is updated with a compare-and-set
+     * of the bits of the average, so recording a latency neither locks nor allocates.
+     */
+    private static class LatencyAverage
+    {
+        // the average until the first latency is recorded
+        private static final long NONE = Double.doubleToRawLongBits(Double.NaN);
+
+        private final AtomicLong bits = new AtomicLong(NONE);
+
+        void update(double latency)
+        {
+            while (true)
+            {
+                long current = bits.get();
+                double next = current == NONE
+                            ? latency
+                            : Double.longBitsToDouble(current) + ALPHA * (latency - Double.longBitsToDouble(current));
+                if (bits.compareAndSet(current, Double.doubleToRawLongBits(next)))
+                    return;
+            }
+        }
+
+        double get()
+        {
+            long current = bits.get();
+            return current == NONE ? 0 : Double.longBitsToDouble(current);
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.locator;
+
+import java.net.InetAddress;
+import java.util.*;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+
+/**
+ * The pending ranges of a keyspace, indexed by token so that finding the pending endpoints of a write is a binary
+ * search rather than a scan of every pending range.
+ *
+ * The tokens bounding the pending ranges cut the ring into intervals that each range either covers entirely or
+ * not at all: (t[i-1], t[i]] for i > 0, and the interval wrapping around the ring, (t[n-1], t[0]], at index 0.
+ * The endpoints pending for each interval are computed once, when the ranges are.
+ *
+ * Instances are immutable and replaced as a whole when the pending ranges are recalculated.
+ */
+public class PendingRangeMaps
+{
+    public static final PendingRangeMaps EMPTY = new PendingRangeMaps(ImmutableSetMultimap.<Range<Token>, InetAddress>of());
+
+    private final ImmutableSetMultimap<Range<Token>, InetAddress> ranges;
+    private final Token[] bounds;
+    private final List<Set<InetAddress>> endpoints;
+
+    public PendingRangeMaps(Multimap<Range<Token>, InetAddress> ranges)
+    {
+        this.ranges = ImmutableSetMultimap.copyOf(ranges);
+
+        SortedSet<Token> sortedBounds = new TreeSet<>();
+        for (Range<Token> range : this.ranges.keySet())
+        {
+            sortedBounds.add(range.left);
+            sortedBounds.add(range.right);
+        }
+        bounds = sortedBounds.toArray(new Token[sortedBounds.size()]);
+
+        List<Set<InetAddress>> intervals = new ArrayList<>(bounds.length);
+        for (int i = 0; i < bounds.length; i++)
+            intervals.add(new HashSet<InetAddress>());
+        for (Map.Entry<Range<Token>, Collection<InetAddress>> entry : this.ranges.asMap().entrySet())
+        {
+            Range<Token> range = entry.getKey();
+            int left = Arrays.binarySearch(bounds, range.left);
+            int right = Arrays.binarySearch(bounds, range.right);
+            if (left < right)
+            {
+                addAll(intervals, left + 1, right, entry.getValue());
+            }
+            else
+            {
+                // the range wraps around the ring, or covers all of it if left == right
+                addAll(intervals, left + 1, bounds.length - 1, entry.getValue());
+                addAll(intervals, 0, right, entry.getValue());
+            }
+        }
+
+        endpoints = new ArrayList<>(bounds.length);
+        for (Set<InetAddress> interval : intervals)
+            endpoints.add(ImmutableSet.copyOf(interval));
+    }
+
+    private static void addAll(List<Set<InetAddress>> intervals, int from, int to, Collection<InetAddress> endpoints)
+    {
+        for (int i = from; i <= to; i++)
+            intervals.get(i).addAll(endpoints);
+    }
+
+    public boolean isEmpty()
+    {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * @return the endpoints with a pending range containing the token
+     */
+    public Collection<InetAddress> pendingEndpointsFor(Token token)
+    {
+        if (bounds.length == 0)
+            return Collections.emptySet();
+
+        int i = Arrays.binarySearch(bounds, token);
+        if (i < 0)
+            i = -i - 1;
+        return endpoints.get(i == bounds.length ? 0 : i);
+    }
+
+    public Map<Range<Token>, Collection<InetAddress>> asMap()
+    {
+        return ranges.asMap();
+    }
+
+    public Multimap<Range<Token>, InetAddress> asMultimap()
+    {
+        return ranges;
+    }
+}
@@ -82,14 +82,15 @@ public class TokenMetadata
     // (don't need to record Token here since it's still part of tokenToEndpointMap until it's done leaving)
     private final Set<InetAddress> leavingEndpoints = new HashSet<InetAddress>();
     // this is a cache of the calculation from {tokenToEndpointMap, bootstrapTokens, leavingEndpoints}
-    private final ConcurrentMap<String, Multimap<Range<Token>, InetAddress>> pendingRanges = new ConcurrentHashMap<String, Multimap<Range<Token>, InetAddress>>();
+    private final ConcurrentMap<String, PendingRangeMaps> pendingRanges = new ConcurrentHashMap<String, PendingRangeMaps>();
 
     // nodes which are migrating to the new tokens in the ring
     private final Set<Pair<Token, InetAddress>> movingEndpoints = new HashSet<Pair<Token, InetAddress>>();
 
     /* Use this lock for manipulating the token map */
-    private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
-    private volatile ArrayList<Token> sortedTokens;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // what the request path looks up, republished by every change to it so that its readers never take the lock
+    private volatile Snapshot snapshot;
 
     private final Topology topology;
 
@@ -116,12 +117,7 @@ public class TokenMetadata
         this.tokenToEndpointMap = tokenToEndpointMap;
         this.topology = topology;
         endpointToHostIdMap = endpointsMap;
-        sortedTokens = sortTokens();
-    }
-
-    private ArrayList<Token> sortTokens()
-    {
-        return new ArrayList<Token>(tokenToEndpointMap.keySet());
+        snapshot = new Snapshot(tokenToEndpointMap, endpointToHostIdMap);
     }
 
     /** @return the number of nodes bootstrapping into source's primary range */
@@ -202,7 +198,7 @@ public class TokenMetadata
             }
 
             if (shouldSortTokens)
-                sortedTokens = sortTokens();
+                snapshot = new Snapshot(tokenToEndpointMap, endpointToHostIdMap);
         }
         finally
         {
@@ -242,6 +238,7 @@ public class TokenMetadata
                 logger.warn("Changing {}'s host ID from {} to {}", endpoint, storedId, hostId);
     
             endpointToHostIdMap.forcePut(endpoint, hostId);
+            snapshot = snapshot.withHostIds(endpointToHostIdMap);
         }
         finally
         {
@@ -253,45 +250,19 @@ public class TokenMetadata
     /** Return the unique host ID for an end-point. */
     public UUID getHostId(InetAddress endpoint)
     {
-        lock.readLock().lock();
-        try
-        {
-            return endpointToHostIdMap.get(endpoint);
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        return snapshot.hostIds.get(endpoint);
     }
 
     /** Return the end-point for a unique host ID */
     public InetAddress getEndpointForHostId(UUID hostId)
     {
-        lock.readLock().lock();
-        try
-        {
-            return endpointToHostIdMap.inverse().get(hostId);
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        return snapshot.hostIds.inverse().get(hostId);
     }
 
     /** @return a copy of the endpoint-to-id map for read-only operations */
     public Map<InetAddress, UUID> getEndpointToHostIdMapForReading()
     {
-        lock.readLock().lock();
-        try
-        {
-            Map<InetAddress, UUID> readMap = new HashMap<InetAddress, UUID>();
-            readMap.putAll(endpointToHostIdMap);
-            return readMap;
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        return new HashMap<InetAddress, UUID>(snapshot.hostIds);
     }
 
     @Deprecated
@@ -397,7 +368,7 @@ public class TokenMetadata
             topology.removeEndpoint(endpoint);
             leavingEndpoints.remove(endpoint);
             endpointToHostIdMap.remove(endpoint);
-            sortedTokens = sortTokens();
+            snapshot = new Snapshot(tokenToEndpointMap, endpointToHostIdMap);
             invalidateCachedRings();
         }
         finally
@@ -459,16 +430,7 @@ public class TokenMetadata
     public boolean isMember(InetAddress endpoint)
     {
         assert endpoint != null;
-
-        lock.readLock().lock();
-        try
-        {
-            return tokenToEndpointMap.inverse().containsKey(endpoint);
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        return snapshot.members.contains(endpoint);
     }
 
     public boolean isLeaving(InetAddress endpoint)
@@ -609,15 +571,7 @@ public class TokenMetadata
 
     public InetAddress getEndpoint(Token token)
     {
-        lock.readLock().lock();
-        try
-        {
-            return tokenToEndpointMap.get(token);
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        return snapshot.tokenToEndpoint.get(token);
     }
 
     public Collection<Range<Token>> getPrimaryRangesFor(Collection<Token> tokens)
@@ -636,32 +590,24 @@ public class TokenMetadata
 
     public ArrayList<Token> sortedTokens()
     {
-        return sortedTokens;
+        return snapshot.sortedTokens;
     }
 
-    private Multimap<Range<Token>, InetAddress> getPendingRangesMM(String keyspaceName)
+    private PendingRangeMaps getPendingRangeMaps(String keyspaceName)
     {
-        Multimap<Range<Token>, InetAddress> map = pendingRanges.get(keyspaceName);
-        if (map == null)
-        {
-            map = HashMultimap.create();
-            Multimap<Range<Token>, InetAddress> priorMap = pendingRanges.putIfAbsent(keyspaceName, map);
-            if (priorMap != null)
-                map = priorMap;
-        }
-        return map;
+        PendingRangeMaps maps = pendingRanges.get(keyspaceName);
+        return maps == null ? PendingRangeMaps.EMPTY : maps;
     }
 
-    /** a mutable map may be returned but caller should not modify it */
     public Map<Range<Token>, Collection<InetAddress>> getPendingRanges(String keyspaceName)
     {
-        return getPendingRangesMM(keyspaceName).asMap();
+        return getPendingRangeMaps(keyspaceName).asMap();
     }
 
     public List<Range<Token>> getPendingRanges(String keyspaceName, InetAddress endpoint)
     {
         List<Range<Token>> ranges = new ArrayList<Range<Token>>();
-        for (Map.Entry<Range<Token>, InetAddress> entry : getPendingRangesMM(keyspaceName).entries())
+        for (Map.Entry<Range<Token>, InetAddress> entry : getPendingRangeMaps(keyspaceName).asMultimap().entries())
         {
             if (entry.getValue().equals(endpoint))
             {
@@ -706,7 +652,7 @@ public class TokenMetadata
                 if (logger.isDebugEnabled())
                     logger.debug("No bootstrapping, leaving or moving nodes -> empty pending ranges for {}", keyspaceName);
 
-                pendingRanges.put(keyspaceName, newPendingRanges);
+                pendingRanges.put(keyspaceName, PendingRangeMaps.EMPTY);
                 return;
             }
 
@@ -766,7 +712,7 @@ public class TokenMetadata
                 allLeftMetadata.removeEndpoint(endpoint);
             }
 
-            pendingRanges.put(keyspaceName, newPendingRanges);
+            pendingRanges.put(keyspaceName, new PendingRangeMaps(newPendingRanges));
 
             if (logger.isDebugEnabled())
                 logger.debug("Pending ranges:\n{}", (pendingRanges.isEmpty() ? "<empty>" : printPendingRanges()));
@@ -809,15 +755,7 @@ public class TokenMetadata
 
     public Set<InetAddress> getAllEndpoints()
     {
-        lock.readLock().lock();
-        try
-        {
-            return ImmutableSet.copyOf(endpointToHostIdMap.keySet());
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        return snapshot.hostIds.keySet();
     }
 
     /** caller should not modify leavingEndpoints */
@@ -923,7 +861,7 @@ public class TokenMetadata
             leavingEndpoints.clear();
             pendingRanges.clear();
             movingEndpoints.clear();
-            sortedTokens.clear();
+            snapshot = new Snapshot(tokenToEndpointMap, endpointToHostIdMap);
             topology.clear();
             invalidateCachedRings();
         }
@@ -995,9 +933,9 @@ public class TokenMetadata
     {
         StringBuilder sb = new StringBuilder();
 
-        for (Map.Entry<String, Multimap<Range<Token>, InetAddress>> entry : pendingRanges.entrySet())
+        for (Map.Entry<String, PendingRangeMaps> entry : pendingRanges.entrySet())
         {
-            for (Map.Entry<Range<Token>, InetAddress> rmap : entry.getValue().entries())
+            for (Map.Entry<Range<Token>, InetAddress> rmap : entry.getValue().asMultimap().entries())
             {
                 sb.append(rmap.getValue()).append(":").append(rmap.getKey());
                 sb.append(System.getProperty("line.separator"));
@@ -1009,18 +947,7 @@ public class TokenMetadata
 
     public Collection<InetAddress> pendingEndpointsFor(Token token, String keyspaceName)
     {
-        Map<Range<Token>, Collection<InetAddress>> ranges = getPendingRanges(keyspaceName);
-        if (ranges.isEmpty())
-            return Collections.emptyList();
-
-        Set<InetAddress> endpoints = new HashSet<InetAddress>();
-        for (Map.Entry<Range<Token>, Collection<InetAddress>> entry : ranges.entrySet())
-        {
-            if (entry.getKey().contains(token))
-                endpoints.addAll(entry.getValue());
-        }
-
-        return endpoints;
+        return getPendingRangeMaps(keyspaceName).pendingEndpointsFor(token);
     }
 
     /**
@@ -1091,6 +1018,42 @@ public class TokenMetadata
         cachedTokenMap.set(null);
     }
 
+    /**
+     * An immutable copy of the normal tokens and host IDs. The sorted tokens are handed out as is, so they must
+     * not be modified either.
+     */
+    private static final class Snapshot
+    {
+        final ArrayList<Token> sortedTokens;
+        final ImmutableMap<Token, InetAddress> tokenToEndpoint;
+        final ImmutableSet<InetAddress> members;
+        final ImmutableBiMap<InetAddress, UUID> hostIds;
+
+        Snapshot(BiMultiValMap<Token, InetAddress> tokenToEndpointMap, BiMap<InetAddress, UUID> endpointToHostIdMap)
+        {
+            this(new ArrayList<Token>(tokenToEndpointMap.keySet()),
+                 ImmutableMap.copyOf(tokenToEndpointMap),
+                 ImmutableSet.copyOf(tokenToEndpointMap.inverse().keySet()),
+                 ImmutableBiMap.copyOf(endpointToHostIdMap));
+        }
+
+        private Snapshot(ArrayList<Token> sortedTokens,
+                         ImmutableMap<Token, InetAddress> tokenToEndpoint,
+                         ImmutableSet<InetAddress> members,
+                         ImmutableBiMap<InetAddress, UUID> hostIds)
+        {
+            this.sortedTokens = sortedTokens;
+            this.tokenToEndpoint = tokenToEndpoint;
+            this.members = members;
+            this.hostIds = hostIds;
+        }
+
+        Snapshot withHostIds(BiMap<InetAddress, UUID> endpointToHostIdMap)
+        {
+            return new Snapshot(sortedTokens, tokenToEndpoint, members, ImmutableBiMap.copyOf(endpointToHostIdMap));
+        }
+    }
+
     /**
      * Tracks the assignment of racks and endpoints in each datacenter for all the "normal" endpoints
      * in this TokenMetadata. This allows faster calculation of endpoints in NetworkTopologyStrategy.
@@ -20,10 +20,13 @@ package org.apache.cassandra.repair;
 import java.net.InetAddress;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +35,8 @@ import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.repair.messages.ValidationComplete;
 import org.apache.cassandra.tracing.Tracing;
@@ -55,24 +60,16 @@ public class Validator implements Runnable
     public final InetAddress initiator;
     public final int gcBefore;
 
-    // null when all rows with the min token have been consumed
-    private long validated;
     private MerkleTree tree;
-    // current range being updated
-    private MerkleTree.TreeRange range;
-    // iterator for iterating sub ranges (MT's leaves)
-    private MerkleTree.TreeRangeIterator ranges;
-    // last key seen
-    private DecoratedKey lastKey;
+    // the segments of the tree being built; a single one covering the whole tree unless split() was called
+    private List<Segment> segments;
 
     public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore)
     {
         this.desc = desc;
         this.initiator = initiator;
         this.gcBefore = gcBefore;
-        validated = 0;
-        range = null;
-        ranges = null;
+        segments = null;
     }
 
     public void prepare(ColumnFamilyStore cfs, MerkleTree tree)
@@ -112,39 +109,47 @@ public class Validator implements Runnable
             }
         }
         logger.debug("Prepared AEService tree of size {} for {}", tree.size(), desc);
-        ranges = tree.invalids();
+        segments = Collections.singletonList(new Segment(desc.range, tree.invalids()));
     }
 
     /**
-     * Called (in order) for every row present in the CF.
-     * Hashes the row, and adds it to the tree being built.
+     * Splits the prepared tree into at most {@code count} segments, each covering a contiguous run of leaves,
+     * so that they can be hashed concurrently. Rows must then be added through the returned segments rather
+     * than through {@link #add(AbstractCompactedRow)}.
      *
-     * @param row Row to add hash
+     * A wrapping range is never split, as its first and last leaves are the same.
+     *
+     * @param count maximum number of segments wanted
+     * @return the segments, in token order
      */
-    public void add(AbstractCompactedRow row)
+    public List<Segment> split(int count)
     {
-        assert desc.range.contains(row.key.getToken()) : row.key.getToken() + " is not contained in " + desc.range;
-        assert lastKey == null || lastKey.compareTo(row.key) < 0
-               : "row " + row.key + " received out of order wrt " + lastKey;
-        lastKey = row.key;
-
-        if (range == null)
-            range = ranges.next();
+        assert segments != null : "Validator was not prepared()";
+        if (count <= 1 || desc.range.isWrapAround())
+            return segments;
 
-        // generate new ranges as long as case 1 is true
-        while (!range.contains(row.key.getToken()))
+        List<MerkleTree.TreeRange> leaves = Lists.newArrayList((Iterator<MerkleTree.TreeRange>) tree.invalids());
+        int perSegment = (leaves.size() + count - 1) / count;
+        List<Segment> split = new ArrayList<>(count);
+        for (List<MerkleTree.TreeRange> group : Lists.partition(leaves, perSegment))
         {
-            // add the empty hash, and move to the next range
-            range.ensureHashInitialised();
-            range = ranges.next();
+            Range<Token> segmentRange = new Range<>(group.get(0).left, group.get(group.size() - 1).right);
+            split.add(new Segment(segmentRange, group.iterator()));
         }
+        segments = split;
+        return segments;
+    }
 
-        // case 3 must be true: mix in the hashed row
-        RowHash rowHash = rowHash(row);
-        if (rowHash != null)
-        {
-            range.addHash(rowHash);
-        }
+    /**
+     * Called (in order) for every row present in the CF.
+     * Hashes the row, and adds it to the tree being built.
+     *
+     * @param row Row to add hash
+     */
+    public void add(AbstractCompactedRow row)
+    {
+        assert segments != null && segments.size() == 1 : "Validator was split, rows must be added to its segments";
+        segments.get(0).add(row);
     }
 
     static class CountingDigest extends MessageDigest
@@ -186,9 +191,8 @@ public class Validator implements Runnable
 
     }
 
-    private MerkleTree.RowHash rowHash(AbstractCompactedRow row)
+    private static MerkleTree.RowHash rowHash(AbstractCompactedRow row)
     {
-        validated++;
         // MerkleTree uses XOR internally, so we want lots of output bits here
         CountingDigest digest = new CountingDigest(FBUtilities.newMessageDigest("SHA-256"));
         row.update(digest);
@@ -214,6 +218,9 @@ public class Validator implements Runnable
 
         if (logger.isDebugEnabled())
         {
+            long validated = 0;
+            for (Segment segment : segments)
+                validated += segment.validated;
             // log distribution of rows in tree
             logger.debug("Validated {} partitions for {}.  Partitions per leaf are:", validated, desc.sessionId);
             tree.histogramOfRowCountPerLeaf().log(logger);
@@ -225,15 +232,10 @@ public class Validator implements Runnable
     @VisibleForTesting
     public void completeTree()
     {
-        assert ranges != null : "Validator was not prepared()";
+        assert segments != null : "Validator was not prepared()";
 
-        if (range != null)
-            range.ensureHashInitialised();
-        while (ranges.hasNext())
-        {
-            range = ranges.next();
-            range.ensureHashInitialised();
-        }
+        for (Segment segment : segments)
+            segment.complete();
     }
 
     /**
@@ -261,4 +263,71 @@ public class Validator implements Runnable
         }
         MessagingService.instance().sendOneWay(new ValidationComplete(desc, tree).createMessage(), initiator);
     }
+
+    /**
+     * A contiguous run of leaves of the tree being built. Segments share no leaf, so distinct segments
+     * can be fed from different threads; rows must be added in order within a segment.
+     */
+    public static class Segment
+    {
+        public final Range<Token> range;
+
+        // iterator for iterating sub ranges (MT's leaves)
+        private final Iterator<MerkleTree.TreeRange> ranges;
+        // current range being updated
+        private MerkleTree.TreeRange current;
+        // last key seen
+        private DecoratedKey lastKey;
+        private long validated;
+
+        private Segment(Range<Token> range, Iterator<MerkleTree.TreeRange> ranges)
+        {
+            this.range = range;
+            this.ranges = ranges;
+        }
+
+        /**
+         * Called (in order) for every row of the segment's range.
+         * Hashes the row, and adds it to the leaf of the tree it belongs to.
+         *
+         * @param row Row to add hash
+         */
+        public void add(AbstractCompactedRow row)
+        {
+            assert range.contains(row.key.getToken()) : row.key.getToken() + " is not contained in " + range;
+            assert lastKey == null || lastKey.compareTo(row.key) < 0
+                   : "row " + row.key + " received out of order wrt " + lastKey;
+            lastKey = row.key;
+
+            if (current == null)
+                current = ranges.next();
+
+            // generate new ranges as long as case 1 is true
+            while (!current.contains(row.key.getToken()))
+            {
+                // add the empty hash, and move to the next range
+                current.ensureHashInitialised();
+                current = ranges.next();
+            }
+
+            validated++;
+            // case 3 must be true: mix in the hashed row
+            RowHash rowHash = rowHash(row);
+            if (rowHash != null)
+            {
+                current.addHash(rowHash);
+            }
+        }
+
+        private void complete()
+        {
+            if (current != null)
+                current.ensureHashInitialised();
+            while (ranges.hasNext())
+            {
+                current = ranges.next();
+                current.ensureHashInitialised();
+            }
+        }
+    }
 }
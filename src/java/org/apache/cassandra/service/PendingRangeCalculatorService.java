@@ -58,7 +58,9 @@ public class PendingRangeCalculatorService
             long start = System.currentTimeMillis();
             for (String keyspaceName : Schema.instance.getNonSystemKeyspaces())
             {
-                calculatePendingRanges(Keyspace.open(keyspaceName).getReplicationStrategy(), keyspaceName);
+                AbstractReplicationStrategy strategy = Keyspace.open(keyspaceName).getReplicationStrategy();
+                strategy.refreshReplicaPlacement();
+                calculatePendingRanges(strategy, keyspaceName);
             }
             PendingRangeCalculatorService.instance.finishUpdate();
             logger.debug("finished calculation for {} keyspaces in {}ms", Schema.instance.getNonSystemKeyspaces().size(), System.currentTimeMillis() - start);
@@ -1182,17 +1182,40 @@ public class StorageProxy implements StorageProxyMBean
             {
                 assert mutation instanceof CounterMutation;
 
-                Mutation result = ((CounterMutation) mutation).apply();
+                CounterAccumulator.Listener listener = new CounterAccumulator.Listener()
+                {
+                    public void onApplied(Mutation result, boolean replicate) throws OverloadedException
+                    {
+                        responseHandler.response(null);
+                        if (replicate)
+                            replicateCounterResult(result, targets, responseHandler, localDataCenter);
+                    }
+                };
+                if (CounterAccumulator.instance.accumulate((CounterMutation) mutation, listener))
+                    return;
+
+                Mutation result = ((CounterMutation) mutation).applyCoalesced();
                 responseHandler.response(null);
 
-                Set<InetAddress> remotes = Sets.difference(ImmutableSet.copyOf(targets),
-                                                           ImmutableSet.of(FBUtilities.getBroadcastAddress()));
-                if (!remotes.isEmpty())
-                    sendToHintedEndpoints(result, remotes, responseHandler, localDataCenter);
+                // a coalesced update is replicated as part of the mutation it was applied with
+                if (result != null)
+                    replicateCounterResult(result, targets, responseHandler, localDataCenter);
             }
         };
     }
 
+    private static void replicateCounterResult(Mutation result,
+                                               Iterable<InetAddress> targets,
+                                               AbstractWriteResponseHandler<IMutation> responseHandler,
+                                               String localDataCenter)
+    throws OverloadedException
+    {
+        Set<InetAddress> remotes = Sets.difference(ImmutableSet.copyOf(targets),
+                                                   ImmutableSet.of(FBUtilities.getBroadcastAddress()));
+        if (!remotes.isEmpty())
+            sendToHintedEndpoints(result, remotes, responseHandler, localDataCenter);
+    }
+
     private static boolean systemKeyspaceQuery(List<ReadCommand> cmds)
     {
         for (ReadCommand cmd : cmds)
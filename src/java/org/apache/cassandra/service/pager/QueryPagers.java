@@ -20,7 +20,12 @@ package org.apache.cassandra.service.pager;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.filter.ColumnCounter;
@@ -38,6 +43,10 @@ public class QueryPagers
 {
     private QueryPagers() {};
 
+    // Fetches the next page of queries paged internally while the current one is processed. A query only ever has
+    // one page in flight, so the number of threads is bounded by the number of concurrent requests.
+    private static final ExecutorService prefetchExecutor = DebuggableThreadPoolExecutor.createCachedThreadpoolWithMaxSize("PagePrefetcher");
+
     private static int maxQueried(ReadCommand command)
     {
         if (command instanceof SliceByNamesReadCommand)
@@ -193,4 +202,44 @@ public class QueryPagers
         }
         return counter.live();
     }
+
+    /**
+     * Starts fetching the next page of the given pager in the background. The pager must not be used again until
+     * the page has been retrieved with {@link #awaitPage(Future)}.
+     */
+    public static Future<List<Row>> fetchPageAsync(final QueryPager pager, final int pageSize)
+    {
+        return prefetchExecutor.submit(new Callable<List<Row>>()
+        {
+            public List<Row> call() throws RequestValidationException, RequestExecutionException
+            {
+                return pager.fetchPage(pageSize);
+            }
+        });
+    }
+
+    public static List<Row> awaitPage(Future<List<Row>> page) throws RequestValidationException, RequestExecutionException
+    {
+        try
+        {
+            return page.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RequestExecutionException)
+                throw (RequestExecutionException) cause;
+            if (cause instanceof RequestValidationException)
+                throw (RequestValidationException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
 }
@@ -416,7 +416,13 @@ public abstract class CBUtil
         int remaining = bytes.remaining();
         cb.writeInt(remaining);
 
-        if (remaining > 0)
+        if (remaining == 0)
+            return;
+
+        // Writing a ByteBuffer moves its position, so only direct buffers, which we can't read in place, are duplicated
+        if (bytes.hasArray())
+            cb.writeBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), remaining);
+        else
             cb.writeBytes(bytes.duplicate());
     }
 
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.ISerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+import org.apache.cassandra.utils.obs.IBitSet;
+import org.apache.cassandra.utils.obs.OffHeapBitSet;
+import org.apache.cassandra.utils.obs.OpenBitSet;
+
+/**
+ * A bloom filter that sets all the bits of a key within a single block of 512 bits, the size of a cache line,
+ * so that a lookup touches a single cache line instead of one per hash. The block is picked with a multiplication
+ * rather than a modulo, and the bits within it from the top bits of a multiplicatively mixed hash.
+ *
+ * The first half of the key hash is the partition's Murmur3 token, so the keys of an sstable covering a narrow
+ * token range share its top bits. The block is therefore picked from the second half, and the probes from a remix
+ * of the first, so that such sstables still spread their keys over all the blocks.
+ *
+ * Blocks receive an uneven number of keys, so for the same false positive rate it needs a few more bits per key
+ * than {@link BloomFilter}; see {@link BloomCalculations#computeBlockedBloomSpec}.
+ */
+public class BlockedBloomFilter extends WrappedSharedCloseable implements IFilter
+{
+    public static final int BLOCK_BITS = 512;
+    private static final int BLOCK_SHIFT = 9;
+    // the top BLOCK_SHIFT bits of the mixed probe select the bit within the block
+    private static final int PROBE_SHIFT = 64 - BLOCK_SHIFT;
+    private static final long PROBE_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final ThreadLocal<long[]> reusableHash = new ThreadLocal<long[]>()
+    {
+        protected long[] initialValue()
+        {
+            return new long[2];
+        }
+    };
+
+    public static final Serializer serializer = new Serializer();
+
+    public final IBitSet bitset;
+    public final int hashCount;
+    private final long blockCount;
+
+    BlockedBloomFilter(int hashCount, IBitSet bitset)
+    {
+        super(bitset);
+        assert bitset.capacity() % BLOCK_BITS == 0 : bitset.capacity();
+        this.hashCount = hashCount;
+        this.bitset = bitset;
+        this.blockCount = bitset.capacity() >>> BLOCK_SHIFT;
+    }
+
+    BlockedBloomFilter(BlockedBloomFilter copy)
+    {
+        super(copy);
+        this.hashCount = copy.hashCount;
+        this.bitset = copy.bitset;
+        this.blockCount = copy.blockCount;
+    }
+
+    /**
+     * @return the number of bits to allocate to hold numElements keys with bucketsPerElement bits each,
+     * rounded up to a whole number of blocks
+     */
+    static long bitsFor(long numElements, int bucketsPerElement)
+    {
+        long blocks = (numElements * bucketsPerElement + BLOCK_BITS - 1) >>> BLOCK_SHIFT;
+        return Math.max(1, blocks) << BLOCK_SHIFT;
+    }
+
+    public long serializedSize()
+    {
+        return serializer.serializedSize(this, TypeSizes.NATIVE);
+    }
+
+    @VisibleForTesting
+    long[] getIndexes(FilterKey key)
+    {
+        long[] hash = new long[2];
+        key.filterHash(hash);
+        long[] indexes = new long[hashCount];
+        long blockStart = blockStart(hash[1]);
+        long probe = MurmurHash.fmix(hash[0]);
+        for (int i = 0; i < hashCount; i++)
+        {
+            probe *= PROBE_MULTIPLIER;
+            indexes[i] = blockStart + (probe >>> PROBE_SHIFT);
+        }
+        return indexes;
+    }
+
+    private long blockStart(long hash)
+    {
+        // the high 32 bits of the hash, scaled to [0, blockCount)
+        return ((hash >>> 32) * blockCount >>> 32) << BLOCK_SHIFT;
+    }
+
+    public void add(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+        long blockStart = blockStart(hash[1]);
+        // each multiplication by an odd constant carries every bit of the remixed hash into the top bits,
+        // so successive probes stay independent where plain double hashing would only use 18 of them
+        long probe = MurmurHash.fmix(hash[0]);
+        for (int i = 0; i < hashCount; i++)
+        {
+            probe *= PROBE_MULTIPLIER;
+            bitset.set(blockStart + (probe >>> PROBE_SHIFT));
+        }
+    }
+
+    public final boolean isPresent(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+        long blockStart = blockStart(hash[1]);
+        long probe = MurmurHash.fmix(hash[0]);
+        for (int i = 0; i < hashCount; i++)
+        {
+            probe *= PROBE_MULTIPLIER;
+            if (!bitset.get(blockStart + (probe >>> PROBE_SHIFT)))
+                return false;
+        }
+        return true;
+    }
+
+    public void clear()
+    {
+        bitset.clear();
+    }
+
+    public IFilter sharedCopy()
+    {
+        return new BlockedBloomFilter(this);
+    }
+
+    @Override
+    public long offHeapSize()
+    {
+        return bitset.offHeapSize();
+    }
+
+    /**
+     * Legacy {@link BloomFilter}s start with their hash count, which is always positive, so this format starts
+     * with a negative version number instead, so that {@link FilterFactory} can tell them apart.
+     */
+    public static class Serializer implements ISerializer<BlockedBloomFilter>
+    {
+        static final int VERSION_1 = -1;
+
+        public void serialize(BlockedBloomFilter bf, DataOutputPlus out) throws IOException
+        {
+            out.writeInt(VERSION_1);
+            out.writeInt(bf.hashCount);
+            bf.bitset.serialize(out);
+        }
+
+        public BlockedBloomFilter deserialize(DataInput in) throws IOException
+        {
+            int version = in.readInt();
+            if (version != VERSION_1)
+                throw new IOException("Unknown blocked bloom filter version " + version);
+            return deserializeBody(in, false);
+        }
+
+        /**
+         * Reads what follows the version, which the caller has already read.
+         */
+        BlockedBloomFilter deserializeBody(DataInput in, boolean offheap) throws IOException
+        {
+            int hashes = in.readInt();
+            IBitSet bs = offheap ? OffHeapBitSet.deserialize(in) : OpenBitSet.deserialize(in);
+            return new BlockedBloomFilter(hashes, bs);
+        }
+
+        public long serializedSize(BlockedBloomFilter bf, TypeSizes typeSizes)
+        {
+            return typeSizes.sizeof(VERSION_1) + typeSizes.sizeof(bf.hashCount) + bf.bitset.serializedSize(typeSizes);
+        }
+    }
+}
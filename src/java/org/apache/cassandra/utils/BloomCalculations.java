@@ -167,6 +167,51 @@ class BloomCalculations {
         return new BloomSpecification(K, bucketsPerElement);
     }
 
+    /**
+     * Computes the specification with the fewest buckets per element, and then the fewest hash functions, for which
+     * a blocked bloom filter stays under the given false positive rate. A blocked filter sets all the bits of a key
+     * within a single block of blockBits bits, so blocks that receive more than their share of the keys make it a
+     * little less accurate than a standard filter of the same size.
+     *
+     * @param maxBucketsPerElement The maximum number of buckets available for the filter.
+     * @param maxFalsePosProb The maximum tolerable false positive rate.
+     * @param blockBits The number of bits in a block.
+     * @return the specification, or null if the false positive rate cannot be met with maxBucketsPerElement
+     */
+    public static BloomSpecification computeBlockedBloomSpec(int maxBucketsPerElement, double maxFalsePosProb, int blockBits)
+    {
+        for (int bucketsPerElement = minBuckets; bucketsPerElement <= maxBucketsPerElement; bucketsPerElement++)
+        {
+            for (int k = minK; k <= bucketsPerElement; k++)
+            {
+                if (blockedFalsePositiveProbability(bucketsPerElement, k, blockBits) <= maxFalsePosProb)
+                    return new BloomSpecification(k, bucketsPerElement);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the false positive rate of a blocked bloom filter: the rate of a standard filter of a single block,
+     * averaged over the number of keys a block receives, which is Poisson distributed.
+     */
+    static double blockedFalsePositiveProbability(int bucketsPerElement, int k, int blockBits)
+    {
+        double keysPerBlock = (double) blockBits / bucketsPerElement;
+        int maxKeys = (int) (keysPerBlock + 12 * Math.sqrt(keysPerBlock) + 20);
+        double poisson = Math.exp(-keysPerBlock);
+        double unsetPerKey = Math.pow(1 - 1.0 / blockBits, k);
+        double unset = 1;
+        double probability = 0;
+        for (int keys = 0; keys <= maxKeys; keys++)
+        {
+            probability += poisson * Math.pow(1 - unset, k);
+            poisson *= keysPerBlock / (keys + 1);
+            unset *= unsetPerKey;
+        }
+        return probability;
+    }
+
     /**
      * Calculates the maximum number of buckets per element that this implementation
      * can support.  Crucially, it will lower the bucket count if necessary to meet
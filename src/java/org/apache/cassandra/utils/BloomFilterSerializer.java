@@ -42,7 +42,14 @@ class BloomFilterSerializer implements ISerializer<BloomFilter>
 
     public BloomFilter deserialize(DataInput in, boolean offheap) throws IOException
     {
-        int hashes = in.readInt();
+        return deserialize(in.readInt(), in, offheap);
+    }
+
+    /**
+     * Reads what follows the hash count, which the caller has already read.
+     */
+    BloomFilter deserialize(int hashes, DataInput in, boolean offheap) throws IOException
+    {
         IBitSet bs = offheap ? OffHeapBitSet.deserialize(in) : OpenBitSet.deserialize(in);
         return createFilter(hashes, bs);
     }
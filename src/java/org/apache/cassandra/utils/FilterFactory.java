@@ -21,7 +21,10 @@ import java.io.DataInput;
 import java.io.IOException;
 
 import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.MappedMemory;
+import org.apache.cassandra.io.util.MemoryInputStream;
 import org.apache.cassandra.utils.obs.IBitSet;
+import org.apache.cassandra.utils.obs.MappedBitSet;
 import org.apache.cassandra.utils.obs.OffHeapBitSet;
 import org.apache.cassandra.utils.obs.OpenBitSet;
 
@@ -34,15 +37,56 @@ public class FilterFactory
 
     private static final Logger logger = LoggerFactory.getLogger(FilterFactory.class);
     private static final long BITSET_EXCESS = 20;
+    // beyond this many bits per element, a standard filter is used instead
+    private static final int MAX_BLOCKED_BUCKETS_PER_ELEMENT = 32;
 
     public static void serialize(IFilter bf, DataOutputPlus output) throws IOException
     {
-        BloomFilter.serializer.serialize((BloomFilter) bf, output);
+        if (bf instanceof BlockedBloomFilter)
+            BlockedBloomFilter.serializer.serialize((BlockedBloomFilter) bf, output);
+        else
+            BloomFilter.serializer.serialize((BloomFilter) bf, output);
     }
 
     public static IFilter deserialize(DataInput input, boolean offheap) throws IOException
     {
-        return BloomFilter.serializer.deserialize(input, offheap);
+        // a standard filter starts with its hash count, any other format with a negative version
+        int header = input.readInt();
+        if (header == BlockedBloomFilter.Serializer.VERSION_1)
+            return BlockedBloomFilter.serializer.deserializeBody(input, offheap);
+        if (header < 0)
+            throw new IOException("Unknown bloom filter format " + header);
+        return BloomFilter.serializer.deserialize(header, input, offheap);
+    }
+
+    /**
+     * Queries a serialized filter in place from a memory mapped file instead of copying its bits off-heap.
+     * The returned filter is read-only; the given memory is closed, the filter holding its own share of it.
+     */
+    public static IFilter deserialize(MappedMemory memory) throws IOException
+    {
+        try
+        {
+            MemoryInputStream input = new MemoryInputStream(memory);
+            int header = input.readInt();
+            int hashes = header;
+            if (header == BlockedBloomFilter.Serializer.VERSION_1)
+                hashes = input.readInt();
+            else if (header < 0)
+                throw new IOException("Unknown bloom filter format " + header);
+
+            long byteCount = input.readInt() * 8L;
+            if (input.getPosition() + byteCount > memory.size())
+                throw new IOException(String.format("Bloom filter of %d bytes does not fit in %d", byteCount, memory.size()));
+            MappedBitSet bitset = new MappedBitSet(memory.region(input.getPosition(), byteCount));
+            if (header == BlockedBloomFilter.Serializer.VERSION_1)
+                return new BlockedBloomFilter(hashes, bitset);
+            return new BloomFilter(hashes, bitset);
+        }
+        finally
+        {
+            memory.close();
+        }
     }
 
     /**
@@ -78,6 +122,25 @@ public class FilterFactory
         return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap);
     }
 
+    /**
+     * @return The smallest filter that can provide the given false positive probability rate for the given number
+     *         of elements, probing a single cache line per lookup if blocked is true. Falls back to a standard
+     *         filter if a blocked one would need too many bits per element.
+     */
+    public static IFilter getFilter(long numElements, double maxFalsePosProbability, boolean offheap, boolean blocked)
+    {
+        if (!blocked || maxFalsePosProbability == 1.0)
+            return getFilter(numElements, maxFalsePosProbability, offheap);
+        BloomCalculations.BloomSpecification spec = BloomCalculations.computeBlockedBloomSpec(MAX_BLOCKED_BUCKETS_PER_ELEMENT,
+                                                                                             maxFalsePosProbability,
+                                                                                             BlockedBloomFilter.BLOCK_BITS);
+        if (spec == null)
+            return getFilter(numElements, maxFalsePosProbability, offheap);
+        long numBits = BlockedBloomFilter.bitsFor(numElements, spec.bucketsPerElement);
+        IBitSet bitset = offheap ? new OffHeapBitSet(numBits) : new OpenBitSet(numBits);
+        return new BlockedBloomFilter(spec.K, bitset);
+    }
+
     private static IFilter createFilter(int hash, long numElements, int bucketsPer, boolean offheap)
     {
         long numBits = (numElements * bucketsPer) + BITSET_EXCESS;
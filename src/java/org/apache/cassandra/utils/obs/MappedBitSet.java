@@ -0,0 +1,109 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils.obs;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.util.MappedMemory;
+
+/**
+ * Read-only bitset over the serialized words of an {@link OffHeapBitSet} or {@link OpenBitSet}
+ * in a memory mapped file, so that a filter can be queried without being deserialized.
+ *
+ * Words are serialized as big-endian longs, so the byte holding a bit is the one at the
+ * mirrored position within its word.
+ */
+public class MappedBitSet implements IBitSet
+{
+    private final MappedMemory words;
+
+    /**
+     * @param words the serialized words, without the word count that precedes them
+     */
+    public MappedBitSet(MappedMemory words)
+    {
+        assert words.size() % 8 == 0 : words.size();
+        this.words = words;
+    }
+
+    public long capacity()
+    {
+        return words.size() * 8;
+    }
+
+    /**
+     * The words live in the page cache rather than in memory allocated for them.
+     */
+    public long offHeapSize()
+    {
+        return 0;
+    }
+
+    public boolean get(long index)
+    {
+        long i = (index >>> 3) ^ 0x7;
+        int bitmask = 0x1 << (index & 0x7);
+        return (words.getByte(i) & bitmask) != 0;
+    }
+
+    public void set(long index)
+    {
+        throw new UnsupportedOperationException("Memory mapped bitsets are read-only");
+    }
+
+    public void clear(long index)
+    {
+        throw new UnsupportedOperationException("Memory mapped bitsets are read-only");
+    }
+
+    public void clear()
+    {
+        throw new UnsupportedOperationException("Memory mapped bitsets are read-only");
+    }
+
+    public void serialize(DataOutput out) throws IOException
+    {
+        out.writeInt((int) (words.size() / 8));
+        // the mapped bytes already are the serialized words
+        byte[] buffer = new byte[4096];
+        for (long i = 0; i < words.size(); i += buffer.length)
+        {
+            int count = (int) Math.min(buffer.length, words.size() - i);
+            words.getBytes(i, buffer, 0, count);
+            out.write(buffer, 0, count);
+        }
+    }
+
+    public long serializedSize(TypeSizes type)
+    {
+        return type.sizeof((int) words.size()) + words.size();
+    }
+
+    public void close()
+    {
+        words.close();
+    }
+
+    public String toString()
+    {
+        return "[MappedBitSet]";
+    }
+}
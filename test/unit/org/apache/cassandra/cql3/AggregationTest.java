@@ -63,6 +63,18 @@ public class AggregationTest extends CQLTester
         assertRows(execute("SELECT COUNT(b), count(c) FROM %s"), row(4L, 3L));
     }
 
+    @Test
+    public void testFunctionsWithEmptyValues() throws Throwable
+    {
+        createTable("CREATE TABLE %s (a int, b int, c bigint, d double, primary key (a, b))");
+
+        execute("INSERT INTO %s (a, b, c, d) VALUES (1, 1, 10, 1.5)");
+        execute("INSERT INTO %s (a, b, c, d) VALUES (1, 2, blobAsBigint(0x), blobAsDouble(0x))");
+        execute("INSERT INTO %s (a, b, c, d) VALUES (1, 3, 20, 2.5)");
+
+        assertRows(execute("SELECT sum(c), avg(c), sum(d), avg(d) FROM %s"), row(30L, 15L, 4.0, 2.0));
+    }
+
     @Test
     public void testFunctionsWithCompactStorage() throws Throwable
     {
@@ -18,6 +18,15 @@
 package org.apache.cassandra.db;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -33,7 +42,9 @@ import org.apache.cassandra.locator.SimpleStrategy;
 import org.apache.cassandra.utils.FBUtilities;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import static org.apache.cassandra.Util.cellname;
 import static org.apache.cassandra.Util.dk;
@@ -230,4 +241,84 @@ public class CounterMutationTest
         assertEquals(ClockAndCount.create(1L, 10L), CounterContext.instance().getLocalClockAndCount(context));
         assertEquals(ClockAndCount.create(1L, 10L), cfs.getCachedCounter(bytes(1), cellname(1)));
     }
+
+    @Test
+    public void testCoalescedIncrements() throws Throwable
+    {
+        final ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF1);
+        cfs.truncateBlocking();
+
+        int threads = 8;
+        final int increments = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            futures.add(executor.submit(new Callable<Void>()
+            {
+                public Void call() throws WriteTimeoutException
+                {
+                    for (int i = 0; i < increments; i++)
+                    {
+                        ColumnFamily cells = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+                        cells.addCounter(cellname(1), 1L);
+                        if (i % 2 == 0)
+                            cells.addCounter(cellname(2), 1L);
+                        new CounterMutation(new Mutation(KEYSPACE1, bytes(1), cells), ConsistencyLevel.ONE).applyCoalesced();
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        ColumnFamily current = cfs.getColumnFamily(QueryFilter.getIdentityFilter(dk(bytes(1)), CF1, System.currentTimeMillis()));
+        assertEquals(threads * increments, CounterContext.instance().total(current.getColumn(cellname(1)).value()));
+        assertEquals(threads * increments / 2, CounterContext.instance().total(current.getColumn(cellname(2)).value()));
+    }
+
+    @Test
+    public void testAccumulatedIncrements() throws Throwable
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF1);
+        cfs.truncateBlocking();
+
+        int increments = 200;
+        final CountDownLatch applied = new CountDownLatch(increments);
+        final AtomicInteger replicated = new AtomicInteger();
+        CounterAccumulator.Listener listener = new CounterAccumulator.Listener()
+        {
+            public void onApplied(Mutation result, boolean replicate)
+            {
+                if (replicate)
+                    replicated.incrementAndGet();
+                applied.countDown();
+            }
+        };
+
+        CounterAccumulator accumulator = new CounterAccumulator(50);
+        for (int i = 0; i < increments; i++)
+        {
+            ColumnFamily cells = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+            cells.addCounter(cellname(1), 1L);
+            if (i % 2 == 0)
+                cells.addCounter(cellname(2), 1L);
+            assertTrue(accumulator.accumulate(new CounterMutation(new Mutation(KEYSPACE1, bytes(1), cells), ConsistencyLevel.ONE), listener));
+        }
+        assertTrue(applied.await(10, TimeUnit.SECONDS));
+        // one replicated mutation per window, far fewer than the increments
+        assertTrue(replicated.get() >= 1 && replicated.get() < increments);
+
+        ColumnFamily current = cfs.getColumnFamily(QueryFilter.getIdentityFilter(dk(bytes(1)), CF1, System.currentTimeMillis()));
+        assertEquals(increments, CounterContext.instance().total(current.getColumn(cellname(1)).value()));
+        assertEquals(increments / 2, CounterContext.instance().total(current.getColumn(cellname(2)).value()));
+
+        // increments at a consistency level needing other replicas are left to the caller
+        ColumnFamily cells = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+        cells.addCounter(cellname(1), 1L);
+        assertFalse(accumulator.accumulate(new CounterMutation(new Mutation(KEYSPACE1, bytes(1), cells), ConsistencyLevel.TWO), listener));
+        assertFalse(new CounterAccumulator(0).accumulate(new CounterMutation(new Mutation(KEYSPACE1, bytes(1), cells), ConsistencyLevel.ONE), listener));
+    }
 }
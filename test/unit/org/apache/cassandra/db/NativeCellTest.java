@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
+import com.google.common.collect.Iterables;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -45,6 +46,7 @@ import org.apache.cassandra.db.marshal.UTF8Type;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.memory.HeapAllocator;
 import org.apache.cassandra.utils.memory.NativeAllocator;
 import org.apache.cassandra.utils.memory.NativePool;
 
@@ -134,6 +136,25 @@ public class NativeCellTest
     }
 
 
+    @Test
+    public void testCopyNativeCells()
+    {
+        CellNameType type = new SimpleDenseCellNameType(UTF8Type.instance);
+        CFMetaData cfm = new CFMetaData("", "", ColumnFamilyType.Standard, type);
+        ArrayBackedSortedColumns cf = ArrayBackedSortedColumns.factory.create(cfm);
+
+        Cell buf = new BufferCell(simpleDense(bytes("a")), bytes("1"), 1);
+        Cell nat = new BufferCell(simpleDense(bytes("b")), bytes("2"), 2).localCopy(cfm, nativeAllocator, group);
+        cf.addColumn(buf);
+        cf.addColumn(nat);
+
+        cf.copyNativeCells(HeapAllocator.instance);
+        Cell[] cells = Iterables.toArray(cf, Cell.class);
+        Assert.assertSame(buf, cells[0]);
+        Assert.assertFalse(cells[1] instanceof AbstractNativeCell);
+        Assert.assertEquals(nat, cells[1]);
+    }
+
     @Test
     public void testComparator()
     {
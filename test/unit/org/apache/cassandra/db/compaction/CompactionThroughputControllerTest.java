@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompactionThroughputControllerTest
+{
+    private int throughput;
+
+    @Before
+    public void setUp()
+    {
+        throughput = DatabaseDescriptor.getCompactionThroughputMbPerSec();
+        DatabaseDescriptor.setCompactionThroughputMbPerSec(64);
+    }
+
+    @After
+    public void tearDown()
+    {
+        DatabaseDescriptor.setCompactionThroughputMbPerSec(throughput);
+    }
+
+    @Test
+    public void testFollowsReadLatency()
+    {
+        CompactionThroughputController controller = new CompactionThroughputController(CompactionManager.instance);
+        double target = DatabaseDescriptor.getCompactionReadLatencyTargetMs();
+        int maxCompactors = Math.max(1, DatabaseDescriptor.getConcurrentCompactors());
+        assertEquals(64, controller.getThroughputMbPerSec(), 0);
+        assertEquals(maxCompactors, controller.getCompactors());
+
+        controller.update(target * 2, 0);
+        assertEquals(32, controller.getThroughputMbPerSec(), 0);
+        assertEquals(Math.max(1, maxCompactors - 1), controller.getCompactors());
+
+        // never below the configured minimum, nor below a single compactor
+        for (int i = 0; i < 20; i++)
+            controller.update(target * 2, 0);
+        assertEquals(DatabaseDescriptor.getCompactionThroughputMinMbPerSec(), controller.getThroughputMbPerSec(), 0);
+        assertEquals(1, controller.getCompactors());
+
+        // recovers additively once reads are fast again, up to the configured maximum
+        double slowed = controller.getThroughputMbPerSec();
+        controller.update(target / 2, 0);
+        assertEquals(slowed + 6.4, controller.getThroughputMbPerSec(), 0.001);
+        assertEquals(Math.min(2, maxCompactors), controller.getCompactors());
+        for (int i = 0; i < 20; i++)
+            controller.update(target / 2, 0);
+        assertEquals(64, controller.getThroughputMbPerSec(), 0);
+        assertEquals(maxCompactors, controller.getCompactors());
+    }
+
+    @Test
+    public void testNotSlowedDownWhenBehind()
+    {
+        CompactionThroughputController controller = new CompactionThroughputController(CompactionManager.instance);
+        double target = DatabaseDescriptor.getCompactionReadLatencyTargetMs();
+        int maxCompactors = Math.max(1, DatabaseDescriptor.getConcurrentCompactors());
+
+        controller.update(target * 2, 100 * maxCompactors);
+        assertEquals(64, controller.getThroughputMbPerSec(), 0);
+        assertEquals(maxCompactors, controller.getCompactors());
+    }
+
+    @Test
+    public void testUnthrottled()
+    {
+        CompactionThroughputController controller = new CompactionThroughputController(CompactionManager.instance);
+        DatabaseDescriptor.setCompactionThroughputMbPerSec(0);
+        controller.update(DatabaseDescriptor.getCompactionReadLatencyTargetMs() * 2, 0);
+        assertEquals(0, controller.getThroughputMbPerSec(), 0);
+    }
+}
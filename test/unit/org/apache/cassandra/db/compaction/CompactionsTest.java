@@ -67,12 +67,15 @@ public class CompactionsTest
     private static final String CF_SUPER1 = "Super1";
     private static final String CF_SUPER5 = "Super5";
     private static final String CF_SUPERGC = "SuperDirectGC";
+    private static final String CF_PARALLEL = "ParallelRanges";
 
     @BeforeClass
     public static void defineSchema() throws ConfigurationException
     {
         Map<String, String> compactionOptions = new HashMap<>();
         compactionOptions.put("tombstone_compaction_interval", "1");
+        Map<String, String> parallelOptions = new HashMap<>();
+        parallelOptions.put("parallel_ranges", "4");
         SchemaLoader.prepareServer();
         SchemaLoader.createKeyspace(KEYSPACE1,
                                     SimpleStrategy.class,
@@ -83,7 +86,8 @@ public class CompactionsTest
                                     SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD4),
                                     SchemaLoader.superCFMD(KEYSPACE1, CF_SUPER1, LongType.instance),
                                     SchemaLoader.superCFMD(KEYSPACE1, CF_SUPER5, BytesType.instance),
-                                    SchemaLoader.superCFMD(KEYSPACE1, CF_SUPERGC, BytesType.instance).gcGraceSeconds(0));
+                                    SchemaLoader.superCFMD(KEYSPACE1, CF_SUPERGC, BytesType.instance).gcGraceSeconds(0),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_PARALLEL).compactionStrategyOptions(parallelOptions));
     }
 
     public ColumnFamilyStore testSingleSSTableCompaction(String strategyClassName) throws Exception
@@ -446,6 +450,42 @@ public class CompactionsTest
         assertEquals(keys, k);
     }
 
+    @Test
+    public void testParallelRangesCompaction() throws Exception
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(CF_PARALLEL);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        // three overlapping sstables, each with enough keys to be sampled several times in its summary
+        int keys = 1000;
+        for (int sstable = 0; sstable < 3; sstable++)
+        {
+            for (int i = 0; i < keys; i++)
+            {
+                Mutation rm = new Mutation(KEYSPACE1, ByteBufferUtil.bytes(String.format("%04d", i)));
+                rm.add(CF_PARALLEL, Util.cellname(Integer.toString(sstable)), ByteBufferUtil.EMPTY_BYTE_BUFFER, System.currentTimeMillis());
+                rm.applyUnsafe();
+            }
+            cfs.forceBlockingFlush();
+        }
+        assertEquals(3, cfs.getSSTables().size());
+
+        cfs.forceMajorCompaction();
+
+        // each range is written to its own sstable, and the ranges don't overlap
+        List<SSTableReader> sstables = new ArrayList<>(cfs.getSSTables());
+        assertTrue(sstables.size() > 1 && sstables.size() <= 4);
+        Collections.sort(sstables, SSTableReader.sstableComparator);
+        for (int i = 1; i < sstables.size(); i++)
+            assertTrue(sstables.get(i - 1).last.compareTo(sstables.get(i).first) < 0);
+
+        assertEquals(keys, Util.getRangeSlice(cfs).size());
+        for (Row row : Util.getRangeSlice(cfs))
+            assertEquals(3, row.cf.getColumnCount());
+    }
+
     @Test
     public void testCompactionLog() throws Exception
     {
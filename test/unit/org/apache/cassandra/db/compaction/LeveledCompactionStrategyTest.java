@@ -21,10 +21,12 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.cassandra.io.sstable.format.SSTableReader;
@@ -236,6 +238,74 @@ public class LeveledCompactionStrategyTest
         assertEquals(scanner.getCurrentPosition(), SSTableReader.getTotalUncompressedBytes(sstables));
     }
 
+    @Test
+    public void testParallelRangesFollowLevelBoundaries() throws Exception
+    {
+        byte [] b = new byte[100 * 1024];
+        new Random().nextBytes(b);
+        ByteBuffer value = ByteBuffer.wrap(b);
+
+        // Enough data to have several sstables in level 1
+        int rows = 20;
+        int columns = 10;
+        for (int r = 0; r < rows; r++)
+        {
+            DecoratedKey key = Util.dk(String.valueOf(r));
+            Mutation rm = new Mutation(KEYSPACE1, key.getKey());
+            for (int c = 0; c < columns; c++)
+            {
+                rm.add(CF_STANDARDDLEVELED, Util.cellname("column" + c), value, 0);
+            }
+            rm.applyUnsafe();
+            cfs.forceBlockingFlush();
+        }
+
+        waitForLeveling(cfs);
+        cfs.disableAutoCompaction();
+        while (CompactionManager.instance.isCompacting(Arrays.asList(cfs)))
+            Thread.sleep(100);
+
+        Set<SSTableReader> level1 = new HashSet<>();
+        for (SSTableReader sstable : cfs.getSSTables())
+        {
+            if (sstable.getSSTableLevel() == 1)
+                level1.add(sstable);
+        }
+        assertTrue(level1.size() > 1);
+
+        assertTrue(cfs.getDataTracker().markCompacting(level1));
+        try
+        {
+            LeveledCompactionTask task = new LeveledCompactionTask(cfs, level1, 1, 0, 1024 * 1024, false)
+            {
+                @Override
+                protected int getParallelRanges()
+                {
+                    return 4;
+                }
+            };
+            List<Range<Token>> ranges = task.getRanges(level1);
+            assertTrue(ranges.size() > 1);
+            assertTrue(ranges.size() <= 4);
+
+            // every sstable of the target level is rewritten by a single range
+            for (SSTableReader sstable : level1)
+            {
+                int containing = 0;
+                for (Range<Token> range : ranges)
+                {
+                    if (range.contains(sstable.first.getToken()) && range.contains(sstable.last.getToken()))
+                        containing++;
+                }
+                assertEquals(1, containing);
+            }
+        }
+        finally
+        {
+            cfs.getDataTracker().unmarkCompacting(level1);
+        }
+    }
+
     @Test
     public void testMutateLevel() throws Exception
     {
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.index.terms;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.TermIndexBuilder;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TermsIndexTest extends CQLTester
+{
+    private static final String INDEX = "CREATE CUSTOM INDEX ON %s(v) USING 'org.apache.cassandra.db.index.terms.TermsIndex'";
+
+    private Set<Integer> keys(String query, Object... values) throws Throwable
+    {
+        Set<Integer> keys = new HashSet<>();
+        for (UntypedResultSet.Row row : execute(query, values))
+            keys.add(row.getInt("k"));
+        return keys;
+    }
+
+    private void assertKeys(Set<Integer> expected) throws Throwable
+    {
+        assertEquals(expected, keys("SELECT k FROM %s WHERE v = ?", "ab"));
+        assertEquals(expected, keys("SELECT k FROM %s WHERE v >= ? AND v < ?", "ab", "ac"));
+    }
+
+    private void assertComponents()
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(currentTable());
+        ColumnDefinition column = currentTableMetadata().getColumnDefinition(new ColumnIdentifier("v", true));
+        Component component = TermIndexBuilder.componentFor(column);
+        for (SSTableReader sstable : cfs.getSSTables())
+            assertTrue(sstable.toString(), new File(sstable.descriptor.filenameFor(component)).exists());
+    }
+
+    @Test
+    public void testSearch() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v text, w int)");
+        createIndex(INDEX);
+
+        execute("INSERT INTO %s (k, v, w) VALUES (?, ?, ?)", 0, "a", 0);
+        execute("INSERT INTO %s (k, v, w) VALUES (?, ?, ?)", 1, "ab", 1);
+        flush();
+        execute("INSERT INTO %s (k, v, w) VALUES (?, ?, ?)", 2, "abc", 2);
+        execute("INSERT INTO %s (k, v, w) VALUES (?, ?, ?)", 3, "b", 3);
+        flush();
+        execute("INSERT INTO %s (k, v, w) VALUES (?, ?, ?)", 4, "ab", 4);
+        assertComponents();
+
+        assertEquals(Sets.newHashSet(1, 4), keys("SELECT k FROM %s WHERE v = ?", "ab"));
+        assertEquals(Sets.newHashSet(1, 2, 4), keys("SELECT k FROM %s WHERE v > ? AND v <= ?", "a", "abc"));
+        assertEquals(Sets.newHashSet(0, 1, 2, 4), keys("SELECT k FROM %s WHERE v < ?", "b"));
+        assertEquals(Sets.newHashSet(2, 3), keys("SELECT k FROM %s WHERE v > ?", "ab"));
+        // a prefix is a range up to the next prefix
+        assertEquals(Sets.newHashSet(1, 2, 4), keys("SELECT k FROM %s WHERE v >= ? AND v < ?", "ab", "ac"));
+        assertEquals(Sets.newHashSet(2), keys("SELECT k FROM %s WHERE v >= ? AND w = ? ALLOW FILTERING", "a", 2));
+        assertEquals(Sets.newHashSet(4), keys("SELECT k FROM %s WHERE v = ? AND k = ?", "ab", 4));
+
+        // overwritten and deleted values are no longer found, whether the old value is in a memtable or an sstable
+        execute("UPDATE %s SET v = ? WHERE k = ?", "c", 1);
+        execute("DELETE FROM %s WHERE k = ?", 2);
+        execute("UPDATE %s SET v = ? WHERE k = ?", "ab", 3);
+        assertKeys(Sets.newHashSet(3, 4));
+
+        flush();
+        assertKeys(Sets.newHashSet(3, 4));
+
+        Keyspace.open(KEYSPACE).getColumnFamilyStore(currentTable()).forceMajorCompaction();
+        assertComponents();
+        assertKeys(Sets.newHashSet(3, 4));
+    }
+
+    @Test
+    public void testIndexExistingData() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v text)");
+        for (int i = 0; i < 10; i++)
+            execute("INSERT INTO %s (k, v) VALUES (?, ?)", i, i % 2 == 0 ? "ab" : "b");
+        flush();
+
+        createIndex(INDEX);
+        assertKeys(Sets.newHashSet(0, 2, 4, 6, 8));
+        assertComponents();
+    }
+
+    @Test
+    public void testInvalidColumns() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, PRIMARY KEY (k, c))");
+        assertInvalidMessage("only supported on regular columns of tables without clustering columns", INDEX);
+
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v set<text>)");
+        assertInvalidMessage("not supported on non-frozen collections", INDEX);
+    }
+}
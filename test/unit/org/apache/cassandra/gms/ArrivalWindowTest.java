@@ -56,4 +56,25 @@ public class ArrivalWindowTest
         //oh noes, a much higher timestamp, something went wrong!
         assertEquals(22.03, windowWithNano.phi(3000 * toNano), 0.01);
     }
+
+    @Test
+    public void testWindowKeepsLastIntervals() throws UnknownHostException
+    {
+        ArrivalWindow window = new ArrivalWindow(3);
+        InetAddress ep = InetAddress.getLocalHost();
+        // the first arrival records the initial interval
+        window.add(1000, ep);
+        assertEquals(FailureDetector.INITIAL_VALUE_NANOS, window.mean(), 0.01);
+
+        window.add(1010, ep);
+        window.add(1030, ep);
+        assertEquals((FailureDetector.INITIAL_VALUE_NANOS + 10 + 20) / 3.0, window.mean(), 0.01);
+
+        // the initial interval is pushed out
+        window.add(1060, ep);
+        window.add(1100, ep);
+        assertEquals(30.0, window.mean(), 0.01);
+        assertEquals("20 30 40", window.toString());
+        assertEquals(2.0, window.phi(1160), 0.01);
+    }
 }
@@ -19,6 +19,8 @@ package org.apache.cassandra.io.sstable;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
@@ -31,8 +33,12 @@ import org.apache.cassandra.db.*;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.RandomPartitioner;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.BufferedDataOutputStreamPlus;
 import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.DataOutputStreamPlus;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.MappedMemory;
+import org.apache.cassandra.io.util.MemoryInputStream;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.Pair;
 
@@ -93,6 +99,45 @@ public class IndexSummaryTest
         random.right.close();
     }
 
+    @Test
+    public void testMappedSerialization() throws IOException
+    {
+        Pair<List<DecoratedKey>, IndexSummary> random = generateRandomIndex(100, 1);
+        File file = File.createTempFile("Summary", ".db");
+        file.deleteOnExit();
+        try (DataOutputStreamPlus dos = new BufferedDataOutputStreamPlus(new FileOutputStream(file)))
+        {
+            IndexSummary.serializer.serialize(random.right, dos, true);
+            dos.writeUTF("JUNK");
+        }
+
+        MappedMemory mapped = MappedMemory.map(file);
+        MemoryInputStream in = new MemoryInputStream(mapped);
+        IndexSummary is = IndexSummary.serializer.deserialize(in, mapped, DatabaseDescriptor.getPartitioner(), true, 1, 1);
+        assertEquals(random.right.size(), is.size());
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(i, is.binarySearch(random.left.get(i)));
+            assertEquals(random.right.getPosition(i), is.getPosition(i));
+        }
+        assertEquals("JUNK", in.readUTF());
+        // the summary holds its own share of the mapping
+        mapped.close();
+
+        // a mapped summary can be downsampled and serialized like any other
+        DataOutputBuffer expected = new DataOutputBuffer();
+        IndexSummary.serializer.serialize(random.right, expected, true);
+        DataOutputBuffer actual = new DataOutputBuffer();
+        IndexSummary.serializer.serialize(is, actual, true);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        IndexSummary downsampled = downsample(is, BASE_SAMPLING_LEVEL / 2, 1, DatabaseDescriptor.getPartitioner());
+        assertEquals(entriesAtSamplingLevel(BASE_SAMPLING_LEVEL / 2, is.getMaxNumberOfEntries()), downsampled.size());
+
+        downsampled.close();
+        is.close();
+        random.right.close();
+    }
+
     @Test
     public void testAddEmptyKey() throws Exception
     {
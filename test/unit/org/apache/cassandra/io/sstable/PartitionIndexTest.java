@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.LocalPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.io.util.FileUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PartitionIndexTest
+{
+    private static List<DecoratedKey> randomKeys(IPartitioner partitioner, int count, Random random)
+    {
+        TreeSet<DecoratedKey> keys = new TreeSet<>(DecoratedKey.comparator);
+        while (keys.size() < count)
+            keys.add(randomKey(partitioner, random));
+        return new ArrayList<>(keys);
+    }
+
+    private static DecoratedKey randomKey(IPartitioner partitioner, Random random)
+    {
+        byte[] bytes = new byte[1 + random.nextInt(20)];
+        random.nextBytes(bytes);
+        return partitioner.decorateKey(ByteBuffer.wrap(bytes));
+    }
+
+    private static DecoratedKey key(IPartitioner partitioner, String key)
+    {
+        return partitioner.decorateKey(ByteBuffer.wrap(key.getBytes()));
+    }
+
+    // positions wide enough to need several bytes
+    private static long position(int index)
+    {
+        return (1L << 33) + index * 1000L;
+    }
+
+    private static PartitionIndex write(List<DecoratedKey> keys) throws Exception
+    {
+        return PartitionIndex.open(writeFile(keys));
+    }
+
+    private static File writeFile(List<DecoratedKey> keys) throws Exception
+    {
+        File file = FileUtils.createTempFile("partitions", ".db");
+        file.deleteOnExit();
+        PartitionIndexBuilder builder = new PartitionIndexBuilder(file);
+        for (int i = 0; i < keys.size(); i++)
+            builder.add(keys.get(i), position(i));
+        builder.complete();
+        return file;
+    }
+
+    // the entry found must be the first key not less than the position or the one just before it
+    private static void assertFloor(List<DecoratedKey> keys, PartitionIndex index, RowPosition position)
+    {
+        int ceiling = 0;
+        while (ceiling < keys.size() && keys.get(ceiling).compareTo(position) < 0)
+            ceiling++;
+
+        long floor = index.floor(position);
+        if (floor < 0)
+        {
+            assertEquals(position.toString(), 0, ceiling);
+            return;
+        }
+        int found = (int) ((floor - position(0)) / 1000);
+        assertEquals(position(found), floor);
+        assertTrue(position.toString(), found == ceiling || found == ceiling - 1);
+        if (ceiling < keys.size() && keys.get(ceiling).equals(position))
+            assertEquals(ceiling, found);
+    }
+
+    private static void assertFloors(IPartitioner partitioner, int count, long seed) throws Exception
+    {
+        Random random = new Random(seed);
+        List<DecoratedKey> keys = randomKeys(partitioner, count, random);
+        try (PartitionIndex index = write(keys))
+        {
+            for (int i = 0; i < keys.size(); i++)
+            {
+                DecoratedKey key = keys.get(i);
+                assertEquals(position(i), index.floor(key));
+                assertFloor(keys, index, key.getToken().minKeyBound());
+                assertFloor(keys, index, key.getToken().maxKeyBound());
+            }
+            for (int i = 0; i < count; i++)
+            {
+                DecoratedKey key = randomKey(partitioner, random);
+                assertFloor(keys, index, key);
+                assertFloor(keys, index, key.getToken().minKeyBound());
+            }
+            assertFloor(keys, index, partitioner.getMinimumToken().minKeyBound());
+        }
+    }
+
+    @Test
+    public void testSupportedPartitioners()
+    {
+        assertTrue(PartitionIndex.isSupported(new Murmur3Partitioner()));
+        assertTrue(PartitionIndex.isSupported(new RandomPartitioner()));
+        assertTrue(PartitionIndex.isSupported(new ByteOrderedPartitioner()));
+        assertFalse(PartitionIndex.isSupported(new LocalPartitioner(BytesType.instance)));
+    }
+
+    @Test
+    public void testMurmur3() throws Exception
+    {
+        assertFloors(new Murmur3Partitioner(), 10000, 1);
+    }
+
+    @Test
+    public void testRandom() throws Exception
+    {
+        assertFloors(new RandomPartitioner(), 2000, 2);
+    }
+
+    @Test
+    public void testByteOrdered() throws Exception
+    {
+        assertFloors(new ByteOrderedPartitioner(), 10000, 3);
+    }
+
+    @Test
+    public void testPrefixKeys() throws Exception
+    {
+        IPartitioner partitioner = new ByteOrderedPartitioner();
+        List<DecoratedKey> keys = new ArrayList<>();
+        for (String key : new String[]{ "", "a", "aa", "aab", "aabc", "ab", "b", "bba", "bbb", "c" })
+            keys.add(key(partitioner, key));
+
+        try (PartitionIndex index = write(keys))
+        {
+            for (int i = 0; i < keys.size(); i++)
+                assertEquals(position(i), index.floor(keys.get(i)));
+
+            String alphabet = "\0abcd";
+            List<String> probes = new ArrayList<>();
+            probes.add("");
+            for (int length = 1; length <= 4; length++)
+            {
+                List<String> longer = new ArrayList<>();
+                for (String probe : probes)
+                    if (probe.length() == length - 1)
+                        for (char c : alphabet.toCharArray())
+                            longer.add(probe + c);
+                probes.addAll(longer);
+            }
+            for (String probe : probes)
+                assertFloor(keys, index, key(partitioner, probe));
+        }
+    }
+
+    @Test
+    public void testFullFanout() throws Exception
+    {
+        IPartitioner partitioner = new ByteOrderedPartitioner();
+        List<DecoratedKey> keys = new ArrayList<>();
+        for (int i = 0; i < 256; i++)
+            keys.add(partitioner.decorateKey(ByteBuffer.wrap(new byte[]{ (byte) i, 1 })));
+
+        try (PartitionIndex index = write(keys))
+        {
+            for (int i = 0; i < 256; i++)
+            {
+                assertEquals(position(i), index.floor(keys.get(i)));
+                assertFloor(keys, index, partitioner.decorateKey(ByteBuffer.wrap(new byte[]{ (byte) i })));
+                assertFloor(keys, index, partitioner.decorateKey(ByteBuffer.wrap(new byte[]{ (byte) i, 2 })));
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        IPartitioner partitioner = new Murmur3Partitioner();
+        try (PartitionIndex index = write(new ArrayList<DecoratedKey>()))
+        {
+            assertEquals(-1, index.floor(key(partitioner, "a")));
+        }
+    }
+
+    @Test
+    public void testSegmentedMapping() throws Exception
+    {
+        // segments of 64 bytes, so that nodes and the values in them straddle segment boundaries
+        IPartitioner partitioner = new Murmur3Partitioner();
+        Random random = new Random(4);
+        List<DecoratedKey> keys = randomKeys(partitioner, 2000, random);
+        try (PartitionIndex index = PartitionIndex.open(writeFile(keys), 6))
+        {
+            for (int i = 0; i < keys.size(); i++)
+            {
+                assertEquals(position(i), index.floor(keys.get(i)));
+                assertFloor(keys, index, keys.get(i).getToken().minKeyBound());
+            }
+            for (int i = 0; i < 2000; i++)
+                assertFloor(keys, index, randomKey(partitioner, random));
+        }
+    }
+
+    @Test
+    public void testCorruptFile() throws Exception
+    {
+        File file = FileUtils.createTempFile("partitions", ".db");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file))
+        {
+            out.write(new byte[]{ 1, 2, 3 });
+        }
+        assertCorrupt(file);
+
+        try (FileOutputStream out = new FileOutputStream(file))
+        {
+            // a root past the end of the file
+            out.write(new byte[]{ 0, 0, 0, 0, 0, 0, 1, 0 });
+        }
+        assertCorrupt(file);
+    }
+
+    private static void assertCorrupt(File file)
+    {
+        try
+        {
+            PartitionIndex.open(file).close();
+            fail("Expected a corrupt partition index");
+        }
+        catch (CorruptSSTableException e)
+        {
+            assertEquals(file, e.path);
+        }
+    }
+}
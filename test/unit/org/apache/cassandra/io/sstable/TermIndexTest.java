@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import org.junit.Test;
+
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.BufferCell;
+import org.apache.cassandra.db.BufferDeletedCell;
+import org.apache.cassandra.db.DataRange;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.db.composites.CellNames;
+import org.apache.cassandra.db.composites.SimpleSparseCellNameType;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TermIndexTest
+{
+    private static final IPartitioner partitioner = new Murmur3Partitioner();
+    private static final CellNameType comparator = new SimpleSparseCellNameType(UTF8Type.instance);
+    private static final CellName indexed = CellNames.simpleSparse(new ColumnIdentifier("v", false));
+    private static final CellName other = CellNames.simpleSparse(new ColumnIdentifier("w", false));
+    private static final AbstractBounds<RowPosition> allKeys = DataRange.allData(partitioner).keyRange();
+
+    private static File write(AbstractType<?> termType, SortedMap<DecoratedKey, ByteBuffer> rows) throws Exception
+    {
+        File file = FileUtils.createTempFile("terms", ".db");
+        file.deleteOnExit();
+        TermIndexBuilder builder = new TermIndexBuilder(file, indexed.toByteBuffer(), comparator, indexed, termType);
+        for (Map.Entry<DecoratedKey, ByteBuffer> row : rows.entrySet())
+        {
+            builder.startPartition(row.getKey());
+            builder.nextAtom(new BufferCell(indexed, row.getValue(), 1));
+            builder.nextAtom(new BufferCell(other, ByteBufferUtil.bytes("ignored"), 1));
+        }
+        builder.complete();
+        return file;
+    }
+
+    private static TermIndex open(AbstractType<?> termType, SortedMap<DecoratedKey, ByteBuffer> rows) throws Exception
+    {
+        return TermIndex.open(write(termType, rows), termType, partitioner);
+    }
+
+    private static List<DecoratedKey> scan(AbstractType<?> termType, SortedMap<DecoratedKey, ByteBuffer> rows, ByteBuffer start, boolean startInclusive, ByteBuffer end, boolean endInclusive)
+    {
+        List<DecoratedKey> keys = new ArrayList<>();
+        for (Map.Entry<DecoratedKey, ByteBuffer> row : rows.entrySet())
+        {
+            int cmpStart = start == null ? 1 : termType.compare(row.getValue(), start);
+            int cmpEnd = end == null ? -1 : termType.compare(row.getValue(), end);
+            if ((cmpStart > 0 || (cmpStart == 0 && startInclusive)) && (cmpEnd < 0 || (cmpEnd == 0 && endInclusive)))
+                keys.add(row.getKey());
+        }
+        return keys;
+    }
+
+    private static List<DecoratedKey> keysBetween(TermIndex index, ByteBuffer start, boolean startInclusive, ByteBuffer end, boolean endInclusive)
+    {
+        SortedSet<DecoratedKey> keys = new TreeSet<>(DecoratedKey.comparator);
+        index.keysBetween(start, startInclusive, end, endInclusive, allKeys, keys);
+        return new ArrayList<>(keys);
+    }
+
+    private static SortedMap<DecoratedKey, ByteBuffer> intRows(int count, int values, Random random)
+    {
+        SortedMap<DecoratedKey, ByteBuffer> rows = new TreeMap<>(DecoratedKey.comparator);
+        for (int i = 0; i < count; i++)
+            rows.put(partitioner.decorateKey(ByteBufferUtil.bytes(i)), ByteBufferUtil.bytes(random.nextInt(values) - values / 2));
+        return rows;
+    }
+
+    @Test
+    public void testExactAndRangeLookups() throws Exception
+    {
+        Random random = new Random(1);
+        SortedMap<DecoratedKey, ByteBuffer> rows = intRows(5000, 200, random);
+        try (TermIndex index = open(Int32Type.instance, rows))
+        {
+            assertEquals(indexed.toByteBuffer(), index.columnName());
+            for (int value = -110; value <= 110; value++)
+            {
+                ByteBuffer term = ByteBufferUtil.bytes(value);
+                assertEquals(scan(Int32Type.instance, rows, term, true, term, true), keysBetween(index, term, true, term, true));
+            }
+            for (int i = 0; i < 200; i++)
+            {
+                ByteBuffer start = random.nextInt(10) == 0 ? null : ByteBufferUtil.bytes(random.nextInt(220) - 110);
+                ByteBuffer end = random.nextInt(10) == 0 ? null : ByteBufferUtil.bytes(random.nextInt(220) - 110);
+                boolean startInclusive = random.nextBoolean(), endInclusive = random.nextBoolean();
+                assertEquals(scan(Int32Type.instance, rows, start, startInclusive, end, endInclusive),
+                             keysBetween(index, start, startInclusive, end, endInclusive));
+            }
+        }
+    }
+
+    @Test
+    public void testPrefixAsRange() throws Exception
+    {
+        SortedMap<DecoratedKey, ByteBuffer> rows = new TreeMap<>(DecoratedKey.comparator);
+        String[] values = { "", "a", "aa", "aab", "aabc", "ab", "b", "bba", "bbb", "c" };
+        for (int i = 0; i < 100; i++)
+            rows.put(partitioner.decorateKey(ByteBufferUtil.bytes(i)), ByteBufferUtil.bytes(values[i % values.length]));
+
+        try (TermIndex index = open(UTF8Type.instance, rows))
+        {
+            assertEquals(values.length, index.size());
+            // a prefix is the range from it to the prefix with its last character incremented
+            for (String prefix : new String[]{ "a", "aa", "aab", "ab", "abc", "b", "bb", "bbc", "c", "d" })
+            {
+                List<DecoratedKey> expected = new ArrayList<>();
+                for (Map.Entry<DecoratedKey, ByteBuffer> row : rows.entrySet())
+                    if (ByteBufferUtil.string(row.getValue()).startsWith(prefix))
+                        expected.add(row.getKey());
+                String next = prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1);
+                assertEquals(prefix, expected, keysBetween(index, ByteBufferUtil.bytes(prefix), true, ByteBufferUtil.bytes(next), false));
+            }
+        }
+    }
+
+    @Test
+    public void testKeyRange() throws Exception
+    {
+        SortedMap<DecoratedKey, ByteBuffer> rows = intRows(1000, 10, new Random(2));
+        List<DecoratedKey> keys = new ArrayList<>(rows.keySet());
+        Range<RowPosition> range = new Range<RowPosition>(keys.get(100), keys.get(200));
+        try (TermIndex index = open(Int32Type.instance, rows))
+        {
+            SortedSet<DecoratedKey> found = new TreeSet<>(DecoratedKey.comparator);
+            index.keysBetween(null, true, null, true, range, found);
+            assertEquals(keys.subList(101, 201), new ArrayList<>(found));
+        }
+    }
+
+    @Test
+    public void testDeadAndRepeatedCells() throws Exception
+    {
+        File file = FileUtils.createTempFile("terms", ".db");
+        file.deleteOnExit();
+        DecoratedKey first = partitioner.decorateKey(ByteBufferUtil.bytes(1));
+        DecoratedKey second = partitioner.decorateKey(ByteBufferUtil.bytes(2));
+        if (first.compareTo(second) > 0)
+        {
+            DecoratedKey swap = first;
+            first = second;
+            second = swap;
+        }
+
+        TermIndexBuilder builder = new TermIndexBuilder(file, indexed.toByteBuffer(), comparator, indexed, UTF8Type.instance);
+        builder.startPartition(first);
+        builder.nextAtom(new BufferCell(indexed, ByteBufferUtil.bytes("a"), 2));
+        builder.nextAtom(new BufferCell(indexed, ByteBufferUtil.bytes("a"), 1));
+        builder.startPartition(second);
+        builder.nextAtom(new BufferDeletedCell(indexed, 0, 1));
+        builder.complete();
+
+        try (TermIndex index = TermIndex.open(file, UTF8Type.instance, partitioner))
+        {
+            assertEquals(1, index.size());
+            assertEquals(Collections.singletonList(first), keysBetween(index, null, true, null, true));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        try (TermIndex index = open(UTF8Type.instance, new TreeMap<DecoratedKey, ByteBuffer>(DecoratedKey.comparator)))
+        {
+            assertEquals(0, index.size());
+            assertTrue(keysBetween(index, null, true, null, true).isEmpty());
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception
+    {
+        File file = write(Int32Type.instance, intRows(100, 10, new Random(3)));
+        try (FileOutputStream out = new FileOutputStream(file, true))
+        {
+            out.getChannel().truncate(file.length() - 3);
+        }
+        try
+        {
+            TermIndex.open(file, Int32Type.instance, partitioner).close();
+            fail("Expected a corrupt term index");
+        }
+        catch (CorruptSSTableException e)
+        {
+            // expected
+        }
+    }
+}
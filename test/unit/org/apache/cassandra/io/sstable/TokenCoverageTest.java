@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.Bounds;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.RandomPartitioner.BigIntegerToken;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenCoverageTest
+{
+    private static LongToken token(long value)
+    {
+        return new LongToken(value);
+    }
+
+    private static AbstractBounds<RowPosition> range(long left, long right)
+    {
+        return Range.makeRowRange(token(left), token(right));
+    }
+
+    private static AbstractBounds<RowPosition> bounds(long left, long right)
+    {
+        return new Bounds<RowPosition>(token(left).minKeyBound(), token(right).maxKeyBound());
+    }
+
+    private static TokenCoverage coverage(long estimatedKeys, long... tokens)
+    {
+        TokenCoverage.Builder builder = new TokenCoverage.Builder(estimatedKeys);
+        for (long token : tokens)
+            builder.add(token(token));
+        return builder.build();
+    }
+
+    @Test
+    public void testSupportedPartitioners()
+    {
+        assertTrue(TokenCoverage.isSupported(new Murmur3Partitioner()));
+        assertTrue(TokenCoverage.isSupported(new RandomPartitioner()));
+        assertFalse(TokenCoverage.isSupported(new ByteOrderedPartitioner()));
+    }
+
+    @Test
+    public void testBucketBits()
+    {
+        assertEquals(TokenCoverage.MIN_BUCKET_BITS, TokenCoverage.bucketBitsFor(0));
+        assertEquals(TokenCoverage.MIN_BUCKET_BITS, TokenCoverage.bucketBitsFor(10));
+        assertEquals(14, TokenCoverage.bucketBitsFor(1000));
+        assertEquals(TokenCoverage.MAX_BUCKET_BITS, TokenCoverage.bucketBitsFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRingPosition()
+    {
+        assertEquals(0, TokenCoverage.ringPosition(Murmur3Partitioner.MINIMUM));
+        assertEquals(Long.MIN_VALUE, TokenCoverage.ringPosition(token(0)));
+        assertEquals(-1L, TokenCoverage.ringPosition(token(Long.MAX_VALUE)));
+
+        assertEquals(0, TokenCoverage.ringPosition(RandomPartitioner.MINIMUM));
+        assertEquals(0, TokenCoverage.ringPosition(new BigIntegerToken(BigInteger.ZERO)));
+        assertEquals(Long.MIN_VALUE, TokenCoverage.ringPosition(new BigIntegerToken(RandomPartitioner.MAXIMUM.shiftRight(1))));
+        assertEquals(-1L, TokenCoverage.ringPosition(new BigIntegerToken(RandomPartitioner.MAXIMUM)));
+    }
+
+    @Test
+    public void testIntersectsBounds()
+    {
+        // 1024 buckets of 2^54 tokens each
+        long bucket = 1L << 54;
+        TokenCoverage coverage = coverage(1, -100 * bucket, 100 * bucket);
+
+        assertTrue(coverage.intersects(range(-101 * bucket, -99 * bucket)));
+        assertTrue(coverage.intersects(bounds(100 * bucket, 100 * bucket)));
+        assertFalse(coverage.intersects(range(-98 * bucket, 98 * bucket)));
+        assertFalse(coverage.intersects(bounds(102 * bucket, 200 * bucket)));
+
+        // up to the end of the ring
+        assertTrue(coverage.intersects(range(99 * bucket, Long.MIN_VALUE)));
+        assertFalse(coverage.intersects(range(102 * bucket, Long.MIN_VALUE)));
+
+        // wrapping around the ring
+        assertTrue(coverage.intersects(range(101 * bucket, -99 * bucket)));
+        assertFalse(coverage.intersects(range(102 * bucket, -102 * bucket)));
+        assertTrue(coverage.intersects(range(0, 0)));
+    }
+
+    @Test
+    public void testIntersectsOther()
+    {
+        long bucket = 1L << 54;
+        TokenCoverage coarse = coverage(1, 10 * bucket);
+        // a finer coverage, with 16 times more buckets
+        TokenCoverage fine = coverage(1000, 10 * bucket + 1);
+        TokenCoverage elsewhere = coverage(1000, 11 * bucket);
+
+        assertTrue(coarse.intersects(fine));
+        assertTrue(fine.intersects(coarse));
+        assertFalse(coarse.intersects(elsewhere));
+        assertFalse(elsewhere.intersects(fine));
+
+        TokenCoverage merged = TokenCoverage.merge(Arrays.asList(fine, elsewhere));
+        assertEquals(fine.bucketCount(), merged.bucketCount());
+        assertTrue(merged.intersects(coarse));
+        // merging takes the coarsest resolution
+        assertEquals(coarse.bucketCount(), TokenCoverage.merge(Arrays.asList(fine, coarse)).bucketCount());
+        assertTrue(merged.intersects(bounds(11 * bucket, 11 * bucket)));
+        assertFalse(merged.intersects(coverage(1, 12 * bucket)));
+    }
+
+    @Test
+    public void testSerialization() throws IOException
+    {
+        TokenCoverage coverage = coverage(1000, Long.MIN_VALUE + 1, -1, 0, 12345678901L, Long.MAX_VALUE);
+        DataOutputBuffer out = new DataOutputBuffer();
+        TokenCoverage.serializer.serialize(coverage, out);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength()));
+        assertEquals(coverage, TokenCoverage.serializer.deserialize(in));
+        assertEquals(0, in.available());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidResolution() throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        out.writeByte(TokenCoverage.MAX_BUCKET_BITS + 1);
+        TokenCoverage.serializer.deserialize(new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength())));
+    }
+}
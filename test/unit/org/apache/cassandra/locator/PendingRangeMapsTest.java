@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.locator;
+
+import java.net.InetAddress;
+import java.util.*;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+
+import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PendingRangeMapsTest
+{
+    private static Range<Token> range(long left, long right)
+    {
+        return new Range<Token>(new LongToken(left), new LongToken(right));
+    }
+
+    private static InetAddress endpoint(int i) throws Exception
+    {
+        return InetAddress.getByName("127.0.0." + i);
+    }
+
+    private static Set<InetAddress> scan(Multimap<Range<Token>, InetAddress> ranges, Token token)
+    {
+        Set<InetAddress> endpoints = new HashSet<>();
+        for (Map.Entry<Range<Token>, InetAddress> entry : ranges.entries())
+            if (entry.getKey().contains(token))
+                endpoints.add(entry.getValue());
+        return endpoints;
+    }
+
+    private static void assertMatchesScan(Multimap<Range<Token>, InetAddress> ranges, long... tokens)
+    {
+        PendingRangeMaps maps = new PendingRangeMaps(ranges);
+        for (long token : tokens)
+        {
+            for (int delta = -1; delta <= 1; delta++)
+            {
+                Token probe = new LongToken(token + delta);
+                assertEquals(probe.toString(), scan(ranges, probe), new HashSet<>(maps.pendingEndpointsFor(probe)));
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        PendingRangeMaps maps = new PendingRangeMaps(HashMultimap.<Range<Token>, InetAddress>create());
+        assertTrue(maps.isEmpty());
+        assertTrue(maps.pendingEndpointsFor(new LongToken(0)).isEmpty());
+        assertTrue(PendingRangeMaps.EMPTY.pendingEndpointsFor(new LongToken(0)).isEmpty());
+    }
+
+    @Test
+    public void testOverlappingAndWrappingRanges() throws Exception
+    {
+        Multimap<Range<Token>, InetAddress> ranges = HashMultimap.create();
+        ranges.put(range(10, 20), endpoint(1));
+        ranges.put(range(15, 30), endpoint(2));
+        ranges.put(range(10, 20), endpoint(3));
+        ranges.put(range(40, 5), endpoint(4));
+        ranges.put(range(25, 25), endpoint(5));
+        ranges.put(range(30, Long.MIN_VALUE), endpoint(6));
+
+        assertMatchesScan(ranges, Long.MIN_VALUE + 1, 0, 5, 10, 15, 20, 25, 30, 40, 50, Long.MAX_VALUE - 1);
+    }
+
+    @Test
+    public void testRandomRanges() throws Exception
+    {
+        Random random = new Random(1);
+        for (int round = 0; round < 20; round++)
+        {
+            Multimap<Range<Token>, InetAddress> ranges = HashMultimap.create();
+            long[] tokens = new long[200];
+            for (int i = 0; i < 100; i++)
+            {
+                long left = random.nextInt(1000), right = random.nextInt(1000);
+                ranges.put(range(left, right), endpoint(1 + random.nextInt(10)));
+                tokens[2 * i] = left;
+                tokens[2 * i + 1] = right;
+            }
+            assertMatchesScan(ranges, tokens);
+        }
+    }
+}
@@ -121,9 +121,27 @@ public class ReplicationStrategyEndpointCacheTest
         assert !endpoints.equals(initial);
     }
 
+    @Test
+    public void testEndpointsMatchCalculation() throws Exception
+    {
+        setup(SimpleStrategy.class, null);
+        for (int i = 0; i <= 90; i++)
+        {
+            Token token = new BigIntegerToken(String.valueOf(i));
+            assert strategy.getNaturalEndpoints(token).equals(strategy.calculateNaturalEndpoints(token, tmd.cloneOnlyTokenMap())) : token;
+        }
+
+        tmd.removeEndpoint(InetAddress.getByName("127.0.0.1"));
+        for (int i = 0; i <= 90; i++)
+        {
+            Token token = new BigIntegerToken(String.valueOf(i));
+            assert strategy.getNaturalEndpoints(token).equals(strategy.calculateNaturalEndpoints(token, tmd.cloneOnlyTokenMap())) : token;
+        }
+    }
+
     protected static class FakeSimpleStrategy extends SimpleStrategy
     {
-        private boolean called = false;
+        private final Set<Token> calculated = new HashSet<>();
 
         public FakeSimpleStrategy(String keyspaceName, TokenMetadata tokenMetadata, IEndpointSnitch snitch, Map<String, String> configOptions)
         {
@@ -132,15 +150,14 @@ public class ReplicationStrategyEndpointCacheTest
 
         public List<InetAddress> calculateNaturalEndpoints(Token token, TokenMetadata metadata)
         {
-            assert !called : "calculateNaturalEndpoints was already called, result should have been cached";
-            called = true;
+            assert calculated.add(token) : "calculateNaturalEndpoints was already called for " + token + ", result should have been cached";
             return super.calculateNaturalEndpoints(token, metadata);
         }
     }
 
     protected static class FakeOldNetworkTopologyStrategy extends OldNetworkTopologyStrategy
     {
-        private boolean called = false;
+        private final Set<Token> calculated = new HashSet<>();
 
         public FakeOldNetworkTopologyStrategy(String keyspaceName, TokenMetadata tokenMetadata, IEndpointSnitch snitch, Map<String, String> configOptions)
         {
@@ -149,15 +166,14 @@ public class ReplicationStrategyEndpointCacheTest
 
         public List<InetAddress> calculateNaturalEndpoints(Token token, TokenMetadata metadata)
         {
-            assert !called : "calculateNaturalEndpoints was already called, result should have been cached";
-            called = true;
+            assert calculated.add(token) : "calculateNaturalEndpoints was already called for " + token + ", result should have been cached";
             return super.calculateNaturalEndpoints(token, metadata);
         }
     }
 
     protected static class FakeNetworkTopologyStrategy extends NetworkTopologyStrategy
     {
-        private boolean called = false;
+        private final Set<Token> calculated = new HashSet<>();
 
         public FakeNetworkTopologyStrategy(String keyspaceName, TokenMetadata tokenMetadata, IEndpointSnitch snitch, Map<String, String> configOptions) throws ConfigurationException
         {
@@ -166,8 +182,7 @@ public class ReplicationStrategyEndpointCacheTest
 
         public List<InetAddress> calculateNaturalEndpoints(Token token, TokenMetadata metadata)
         {
-            assert !called : "calculateNaturalEndpoints was already called, result should have been cached";
-            called = true;
+            assert calculated.add(token) : "calculateNaturalEndpoints was already called for " + token + ", result should have been cached";
             return super.calculateNaturalEndpoints(token, metadata);
         }
     }
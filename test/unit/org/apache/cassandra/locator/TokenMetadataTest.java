@@ -20,12 +20,18 @@ package org.apache.cassandra.locator;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.UUID;
+
 import com.google.common.collect.Iterators;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import static org.apache.cassandra.Util.token;
 
@@ -84,4 +90,36 @@ public class TokenMetadataTest
     {
         testRingIterator(new ArrayList<Token>(), "2", false);
     }
+
+    @Test
+    public void testLookupsFollowChanges() throws Exception
+    {
+        TokenMetadata metadata = new TokenMetadata();
+        InetAddress first = InetAddress.getByName("127.0.0.1");
+        InetAddress second = InetAddress.getByName("127.0.0.2");
+        UUID firstId = UUID.randomUUID();
+
+        metadata.updateNormalToken(token(ONE), first);
+        metadata.updateHostId(firstId, first);
+        ArrayList<Token> ring = metadata.sortedTokens();
+        assertEquals(first, metadata.getEndpoint(token(ONE)));
+        assertEquals(firstId, metadata.getHostId(first));
+        assertEquals(first, metadata.getEndpointForHostId(firstId));
+        assertTrue(metadata.isMember(first));
+        assertFalse(metadata.isMember(second));
+
+        metadata.updateNormalToken(token(SIX), second);
+        assertEquals(1, ring.size());
+        assertEquals(2, metadata.sortedTokens().size());
+        assertEquals(second, metadata.getEndpoint(token(SIX)));
+        assertTrue(metadata.isMember(second));
+        assertNull(metadata.getHostId(second));
+
+        metadata.removeEndpoint(first);
+        assertNull(metadata.getEndpoint(token(ONE)));
+        assertNull(metadata.getHostId(first));
+        assertNull(metadata.getEndpointForHostId(firstId));
+        assertFalse(metadata.isMember(first));
+        assertEquals(Collections.singletonList(token(SIX)), metadata.sortedTokens());
+    }
 }
@@ -20,6 +20,9 @@ package org.apache.cassandra.repair;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.apache.cassandra.io.util.SequentialWriter;
@@ -39,6 +42,7 @@ import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.ColumnStats;
+import org.apache.cassandra.io.sstable.format.SSTableFlushObserver;
 import org.apache.cassandra.locator.SimpleStrategy;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessageOut;
@@ -135,6 +139,49 @@ public class ValidatorTest
             lock.await();
     }
 
+    @Test
+    public void testSplitValidatorMatchesSequential() throws Throwable
+    {
+        Token left = partitioner.getRandomToken();
+        Token right = partitioner.getRandomToken();
+        Range<Token> range = left.compareTo(right) < 0 ? new Range<>(left, right) : new Range<>(right, left);
+        RepairJobDesc desc = new RepairJobDesc(UUID.randomUUID(), UUID.randomUUID(), keyspace, columnFamily, range);
+        ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(columnFamily);
+
+        List<DecoratedKey> keys = new ArrayList<>();
+        Token token = range.left;
+        for (int i = 0; i < 30; i++)
+        {
+            token = partitioner.midpoint(token, range.right);
+            keys.add(new BufferDecoratedKey(token, ByteBufferUtil.bytes(i)));
+        }
+
+        Validator sequential = new Validator(desc, InetAddress.getByName("127.0.0.2"), 0);
+        MerkleTree sequentialTree = new MerkleTree(cfs.partitioner, range, MerkleTree.RECOMMENDED_DEPTH, (int) Math.pow(2, 15));
+        sequential.prepare(cfs, sequentialTree);
+        for (DecoratedKey key : keys)
+            sequential.add(new DigestedRowStub(key));
+        sequential.completeTree();
+
+        Validator split = new Validator(desc, InetAddress.getByName("127.0.0.2"), 0);
+        MerkleTree splitTree = new MerkleTree(cfs.partitioner, range, MerkleTree.RECOMMENDED_DEPTH, (int) Math.pow(2, 15));
+        split.prepare(cfs, splitTree);
+        List<Validator.Segment> segments = split.split(4);
+        assertEquals(4, segments.size());
+        for (DecoratedKey key : keys)
+        {
+            for (Validator.Segment segment : segments)
+            {
+                if (segment.range.contains(key.getToken()))
+                    segment.add(new DigestedRowStub(key));
+            }
+        }
+        split.completeTree();
+
+        assertTrue(MerkleTree.difference(sequentialTree, splitTree).isEmpty());
+        assertArrayEquals(sequentialTree.hash(range), splitTree.hash(range));
+    }
+
     private static class CompactedRowStub extends AbstractCompactedRow
     {
         private CompactedRowStub(DecoratedKey key)
@@ -142,7 +189,7 @@ public class ValidatorTest
             super(key);
         }
 
-        public RowIndexEntry write(long currentPosition, SequentialWriter out) throws IOException
+        public RowIndexEntry write(long currentPosition, SequentialWriter out, Collection<SSTableFlushObserver> observers) throws IOException
         {
             throw new UnsupportedOperationException();
         }
@@ -157,6 +204,20 @@ public class ValidatorTest
         public void close() throws IOException { }
     }
 
+    private static class DigestedRowStub extends CompactedRowStub
+    {
+        private DigestedRowStub(DecoratedKey key)
+        {
+            super(key);
+        }
+
+        @Override
+        public void update(MessageDigest digest)
+        {
+            digest.update(key.getKey().duplicate());
+        }
+    }
+
     @Test
     public void testValidatorFailed() throws Throwable
     {
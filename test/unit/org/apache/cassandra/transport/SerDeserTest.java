@@ -258,4 +258,27 @@ public class SerDeserTest
 
         assertEquals(decodedMeta, decodedMetaWithoutIndexes);
     }
+
+    @Test
+    public void valueSerializationTest()
+    {
+        ByteBuffer backing = bytes("xxvaluexx");
+        ByteBuffer slice = ((ByteBuffer) backing.duplicate().position(2).limit(7)).slice();
+        ByteBuffer direct = ByteBuffer.allocateDirect(5);
+        direct.put(bytes("value")).flip();
+
+        for (ByteBuffer value : Arrays.asList(slice, direct, bytes("value")))
+        {
+            ByteBuf buf = Unpooled.buffer(CBUtil.sizeOfValue(value));
+            CBUtil.writeValue(value, buf);
+            assertEquals(0, value.position());
+            assertEquals(bytes("value"), CBUtil.readValue(buf));
+        }
+
+        ByteBuf buf = Unpooled.buffer(CBUtil.sizeOfValue(ByteBuffer.allocate(0)) + CBUtil.sizeOfValue((ByteBuffer) null));
+        CBUtil.writeValue(ByteBuffer.allocate(0), buf);
+        CBUtil.writeValue((ByteBuffer) null, buf);
+        assertEquals(0, CBUtil.readValue(buf).remaining());
+        assertEquals(null, CBUtil.readValue(buf));
+    }
 }
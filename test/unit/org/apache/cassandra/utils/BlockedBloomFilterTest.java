@@ -0,0 +1,144 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockedBloomFilterTest
+{
+    public IFilter bf;
+
+    @Before
+    public void setup()
+    {
+        bf = FilterFactory.getFilter(FilterTestHelper.ELEMENTS, FilterTestHelper.MAX_FAILURE_RATE, true, true);
+    }
+
+    @After
+    public void destroy()
+    {
+        bf.close();
+    }
+
+    @Test
+    public void testBlockedFilterIsCreated()
+    {
+        assertTrue(bf instanceof BlockedBloomFilter);
+        assertEquals(0, ((BlockedBloomFilter) bf).bitset.capacity() % BlockedBloomFilter.BLOCK_BITS);
+    }
+
+    @Test
+    public void testProbesStayWithinOneBlock()
+    {
+        BlockedBloomFilter filter = (BlockedBloomFilter) bf;
+        ResetableIterator<ByteBuffer> keys = FilterTestHelper.randomKeys();
+        while (keys.hasNext())
+        {
+            long[] indexes = filter.getIndexes(FilterTestHelper.wrap(keys.next()));
+            long block = indexes[0] / BlockedBloomFilter.BLOCK_BITS;
+            for (long index : indexes)
+            {
+                assertEquals(block, index / BlockedBloomFilter.BLOCK_BITS);
+                assertTrue(index < filter.bitset.capacity());
+            }
+        }
+    }
+
+    @Test
+    public void testFalsePositives()
+    {
+        ResetableIterator<ByteBuffer> keys = FilterTestHelper.randomKeys();
+        while (keys.hasNext())
+            bf.add(FilterTestHelper.wrap(keys.next()));
+
+        keys.reset();
+        while (keys.hasNext())
+            assertTrue(bf.isPresent(FilterTestHelper.wrap(keys.next())));
+
+        int fp = 0;
+        ResetableIterator<ByteBuffer> otherKeys = FilterTestHelper.randomKeys2();
+        while (otherKeys.hasNext())
+        {
+            if (bf.isPresent(FilterTestHelper.wrap(otherKeys.next())))
+                fp++;
+        }
+        double ratio = (double) fp / FilterTestHelper.ELEMENTS;
+        assertTrue("false positive rate " + ratio, ratio < FilterTestHelper.MAX_FAILURE_RATE * 1.03);
+    }
+
+    // random keys whose Murmur3 token falls within the same 1/64th of the ring
+    private static List<ByteBuffer> narrowRangeKeys(Random random, int count)
+    {
+        List<ByteBuffer> keys = new ArrayList<>(count);
+        long[] hash = new long[2];
+        while (keys.size() < count)
+        {
+            ByteBuffer key = ByteBufferUtil.bytes(random.nextLong());
+            MurmurHash.hash3_x64_128(key, key.position(), key.remaining(), 0, hash);
+            if (hash[0] >>> 58 == 0)
+                keys.add(key);
+        }
+        return keys;
+    }
+
+    @Test
+    public void testFalsePositivesWithinNarrowTokenRange()
+    {
+        Random random = new Random(1);
+        for (ByteBuffer key : narrowRangeKeys(random, FilterTestHelper.ELEMENTS))
+            bf.add(FilterTestHelper.wrap(key));
+
+        int fp = 0;
+        for (ByteBuffer key : narrowRangeKeys(random, FilterTestHelper.ELEMENTS))
+        {
+            if (bf.isPresent(FilterTestHelper.wrap(key)))
+                fp++;
+        }
+        double ratio = (double) fp / FilterTestHelper.ELEMENTS;
+        assertTrue("false positive rate " + ratio, ratio < FilterTestHelper.MAX_FAILURE_RATE * 1.03);
+    }
+
+    @Test
+    public void testSerialize() throws IOException
+    {
+        IFilter f2 = BloomFilterTest.testSerialize(bf);
+        assertTrue(f2 instanceof BlockedBloomFilter);
+        assertEquals(bf.serializedSize(), f2.serializedSize());
+        f2.close();
+    }
+
+    @Test
+    public void testStandardFilterWhenNotBlocked()
+    {
+        IFilter filter = FilterFactory.getFilter(FilterTestHelper.ELEMENTS, FilterTestHelper.MAX_FAILURE_RATE, true, false);
+        assertTrue(filter instanceof BloomFilter);
+        filter.close();
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.cassandra.dht.Murmur3Partitioner;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.MappedMemory;
 import org.apache.cassandra.io.util.BufferedDataOutputStreamPlus;
 import org.apache.cassandra.utils.IFilter.FilterKey;
 import org.apache.cassandra.utils.KeyGenerator.RandomStringGenerator;
@@ -130,6 +131,40 @@ public class BloomFilterTest
         BloomFilterTest.testSerialize(bf).close();
     }
 
+    @Test
+    public void testMappedFilter() throws IOException
+    {
+        IFilter blocked = FilterFactory.getFilter(FilterTestHelper.ELEMENTS, FilterTestHelper.MAX_FAILURE_RATE, true, true);
+        for (IFilter filter : new IFilter[]{ bf, blocked })
+        {
+            ResetableIterator<ByteBuffer> keys = FilterTestHelper.randomKeys();
+            while (keys.hasNext())
+                filter.add(FilterTestHelper.wrap(keys.next()));
+
+            File file = File.createTempFile("bloomFilterTest-", ".dat");
+            file.deleteOnExit();
+            try (DataOutputStreamPlus out = new BufferedDataOutputStreamPlus(new FileOutputStream(file)))
+            {
+                FilterFactory.serialize(filter, out);
+            }
+
+            IFilter mapped = FilterFactory.deserialize(MappedMemory.map(file));
+            Assert.assertEquals(filter.getClass(), mapped.getClass());
+            Assert.assertEquals(filter.serializedSize(), mapped.serializedSize());
+            keys.reset();
+            while (keys.hasNext())
+                Assert.assertTrue(mapped.isPresent(FilterTestHelper.wrap(keys.next())));
+            ResetableIterator<ByteBuffer> otherKeys = FilterTestHelper.randomKeys2();
+            while (otherKeys.hasNext())
+            {
+                FilterKey key = FilterTestHelper.wrap(otherKeys.next());
+                Assert.assertEquals(filter.isPresent(key), mapped.isPresent(key));
+            }
+            mapped.close();
+        }
+        blocked.close();
+    }
+
     public void testManyHashes(Iterator<ByteBuffer> keys)
     {
         int MAX_HASH_COUNT = 128;